@@ -0,0 +1,267 @@
+package manager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Частота просмотров задач с затуханием.
+ * Счетчики - count-min sketch фиксированного размера, раз в halfLife все счетчики делятся пополам,
+ * поэтому просмотры часовой давности весят меньше 1/16 при полупериоде 15 минут.
+ * Самые просматриваемые задачи держатся в куче на topSize элементов. Память не зависит
+ * от числа просмотров и задач, оценка бывает только завышенной.
+ * Просмотр не блокируется: id добавляется в неблокирующую очередь, а в счетчики очередь переносит
+ * поток, которому удалось взять блокировку через tryLock. Чтение и удаление сначала переносят очередь.
+ */
+final class AccessStatistics {
+    static final Duration DEFAULT_HALF_LIFE = Duration.ofMinutes(15);
+    static final int DEFAULT_TOP_SIZE = 32;
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 1024;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int[] counters = new int[DEPTH * WIDTH];
+    private final long halfLifeMillis;
+    private final Clock clock;
+    private long lastDecay;
+
+    private final int[] topIds;
+    private final int[] topCounts;
+    private int topSize;
+
+    AccessStatistics() {
+        this(DEFAULT_HALF_LIFE, DEFAULT_TOP_SIZE, Clock.systemUTC());
+    }
+
+    AccessStatistics(Duration halfLife, int topSize, Clock clock) {
+        if (halfLife.isNegative() || halfLife.isZero() || topSize < 1) {
+            throw new IllegalArgumentException("Некорректные параметры статистики просмотров.");
+        }
+        this.halfLifeMillis = halfLife.toMillis();
+        this.clock = clock;
+        this.lastDecay = clock.millis();
+        this.topIds = new int[topSize];
+        this.topCounts = new int[topSize];
+    }
+
+    /**
+     * Учесть просмотр задачи.
+     */
+    void record(int id) {
+        pending.add(id);
+        // Просмотр, добавленный после переноса, но до unlock, подберет этот же цикл.
+        while (!pending.isEmpty() && lock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Системный. Для переноса просмотров из очереди в счетчики, вызывается под блокировкой.
+     */
+    private void drain() {
+        Integer id;
+        while ((id = pending.poll()) != null) {
+            apply(id);
+        }
+    }
+
+    private void apply(int id) {
+        decay();
+        int estimate = increment(id);
+        int position = indexOfTop(id);
+        if (position >= 0) {
+            topCounts[position] = estimate;
+            siftDown(position);
+        } else if (topSize < topIds.length) {
+            topIds[topSize] = id;
+            topCounts[topSize] = estimate;
+            siftUp(topSize++);
+        } else if (estimate > topCounts[0]) {
+            topIds[0] = id;
+            topCounts[0] = estimate;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Убрать удаленную задачу из самых просматриваемых. Счетчики в sketch не уменьшаются и затухают сами.
+     */
+    void remove(int id) {
+        lock.lock();
+        try {
+            drain();
+            int position = indexOfTop(id);
+            if (position < 0) {
+                return;
+            }
+            topSize--;
+            topIds[position] = topIds[topSize];
+            topCounts[position] = topCounts[topSize];
+            if (position < topSize) {
+                siftDown(position);
+                siftUp(position);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            pending.clear();
+            Arrays.fill(counters, 0);
+            topSize = 0;
+            lastDecay = clock.millis();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Оценка числа недавних просмотров задачи с учетом затухания.
+     */
+    public int estimate(int id) {
+        lock.lock();
+        try {
+            drain();
+            decay();
+            int estimate = Integer.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                estimate = Math.min(estimate, counters[index(row, id)]);
+            }
+            return estimate;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Не больше limit самых просматриваемых задач: id и оценка просмотров, по убыванию оценки.
+     */
+    public Map<Integer, Integer> getTopViewed(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер выборки должен быть больше нуля");
+        }
+        lock.lock();
+        try {
+            drain();
+            decay();
+            Integer[] order = new Integer[topSize];
+            for (int i = 0; i < topSize; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> topCounts[a] != topCounts[b]
+                    ? Integer.compare(topCounts[b], topCounts[a]) : Integer.compare(topIds[a], topIds[b]));
+            Map<Integer, Integer> result = new LinkedHashMap<>();
+            for (int i = 0; i < Math.min(limit, topSize) && topCounts[order[i]] > 0; i++) {
+                result.put(topIds[order[i]], topCounts[order[i]]);
+            }
+            return Collections.unmodifiableMap(result);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Системный. Для консервативного увеличения: растут только минимальные счетчики задачи.
+     */
+    private int increment(int id) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[index(row, id)]);
+        }
+        if (estimate == Integer.MAX_VALUE) {
+            return estimate;
+        }
+        estimate++;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(row, id);
+            counters[index] = Math.max(counters[index], estimate);
+        }
+        return estimate;
+    }
+
+    /**
+     * Системный. Для деления счетчиков пополам за каждый прошедший полупериод.
+     * Порядок в куче от этого не меняется.
+     */
+    private void decay() {
+        long periods = (clock.millis() - lastDecay) / halfLifeMillis;
+        if (periods <= 0) {
+            return;
+        }
+        lastDecay += periods * halfLifeMillis;
+        int shift = (int) Math.min(periods, 31);
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= shift;
+        }
+        for (int i = 0; i < topSize; i++) {
+            topCounts[i] >>>= shift;
+        }
+    }
+
+    private int index(int row, int id) {
+        int h = (id ^ (id >>> 16)) * SEEDS[row];
+        return row * WIDTH + ((h ^ (h >>> 15)) & (WIDTH - 1));
+    }
+
+    private int indexOfTop(int id) {
+        for (int i = 0; i < topSize; i++) {
+            if (topIds[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (topCounts[parent] <= topCounts[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            if (left < topSize && topCounts[left] < topCounts[smallest]) {
+                smallest = left;
+            }
+            if (left + 1 < topSize && topCounts[left + 1] < topCounts[smallest]) {
+                smallest = left + 1;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = topIds[a];
+        topIds[a] = topIds[b];
+        topIds[b] = id;
+        int count = topCounts[a];
+        topCounts[a] = topCounts[b];
+        topCounts[b] = count;
+    }
+}
@@ -0,0 +1,207 @@
+package manager;
+
+import model.Task;
+import model.TaskTypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Хранилище задач в массиве, индексированном id.
+ * Идентификаторы выдаются подряд, поэтому массив плотный. Он разбит на страницы,
+ * которые создаются по мере надобности. Поиск по id - O(1) без упаковки ключа,
+ * у каждой ячейки есть байт с типом задачи.
+ */
+class ArrayTaskStore implements TaskStore {
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final byte EMPTY = 0;
+    private static final TaskTypes[] TYPES = TaskTypes.values();
+
+    private Task[][] pages = new Task[1][];
+    private byte[][] tags = new byte[1][];
+    private final int[] counts = new int[TYPES.length];
+
+    @Override
+    public Task get(int id) {
+        if (id < 0 || (id >>> PAGE_SHIFT) >= pages.length) {
+            return null;
+        }
+        Task[] page = pages[id >>> PAGE_SHIFT];
+        return page == null ? null : page[id & PAGE_MASK];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Task> T get(int id, TaskTypes type) {
+        if (typeOf(id) != type) {
+            return null;
+        }
+        return (T) pages[id >>> PAGE_SHIFT][id & PAGE_MASK];
+    }
+
+    @Override
+    public TaskTypes typeOf(int id) {
+        if (id < 0 || (id >>> PAGE_SHIFT) >= tags.length) {
+            return null;
+        }
+        byte[] page = tags[id >>> PAGE_SHIFT];
+        if (page == null || page[id & PAGE_MASK] == EMPTY) {
+            return null;
+        }
+        return TYPES[page[id & PAGE_MASK] - 1];
+    }
+
+    @Override
+    public Task put(Task task) {
+        int id = task.getId();
+        if (id < 0) {
+            throw new IllegalArgumentException("Некорректный id задачи: " + id);
+        }
+        int pageIndex = id >>> PAGE_SHIFT;
+        if (pageIndex >= pages.length) {
+            int length = Math.max(pageIndex + 1, pages.length * 2);
+            pages = Arrays.copyOf(pages, length);
+            tags = Arrays.copyOf(tags, length);
+        }
+        if (pages[pageIndex] == null) {
+            pages[pageIndex] = new Task[PAGE_SIZE];
+            tags[pageIndex] = new byte[PAGE_SIZE];
+        }
+        byte[] tagPage = tags[pageIndex];
+        int slot = id & PAGE_MASK;
+        if (tagPage[slot] != EMPTY) {
+            counts[tagPage[slot] - 1]--;
+        }
+        Task previous = pages[pageIndex][slot];
+        pages[pageIndex][slot] = task;
+        tagPage[slot] = (byte) (task.getType().ordinal() + 1);
+        counts[task.getType().ordinal()]++;
+        return previous;
+    }
+
+    @Override
+    public void writeBack(Task task) {
+    }
+
+    @Override
+    public Task remove(int id) {
+        TaskTypes type = typeOf(id);
+        if (type == null) {
+            return null;
+        }
+        Task[] page = pages[id >>> PAGE_SHIFT];
+        Task task = page[id & PAGE_MASK];
+        page[id & PAGE_MASK] = null;
+        tags[id >>> PAGE_SHIFT][id & PAGE_MASK] = EMPTY;
+        counts[type.ordinal()]--;
+        return task;
+    }
+
+    @Override
+    public int size(TaskTypes type) {
+        return counts[type.ordinal()];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Task> ArrayList<T> values(TaskTypes type) {
+        ArrayList<T> values = new ArrayList<>(counts[type.ordinal()]);
+        byte tag = (byte) (type.ordinal() + 1);
+        for (int pageIndex = 0; pageIndex < pages.length && values.size() < counts[type.ordinal()]; pageIndex++) {
+            byte[] tagPage = tags[pageIndex];
+            if (tagPage == null) {
+                continue;
+            }
+            for (int slot = 0; slot < PAGE_SIZE; slot++) {
+                if (tagPage[slot] == tag) {
+                    values.add((T) pages[pageIndex][slot]);
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Task> ArrayList<T> values(TaskTypes type, int afterId, int limit) {
+        ArrayList<T> values = new ArrayList<>(Math.min(limit, counts[type.ordinal()]));
+        if (afterId == Integer.MAX_VALUE) {
+            return values;
+        }
+        byte tag = (byte) (type.ordinal() + 1);
+        for (int id = Math.max(afterId + 1, 0); (id >>> PAGE_SHIFT) < pages.length && values.size() < limit; id++) {
+            byte[] tagPage = tags[id >>> PAGE_SHIFT];
+            if (tagPage == null) {
+                id |= PAGE_MASK;
+                continue;
+            }
+            if (tagPage[id & PAGE_MASK] == tag) {
+                values.add((T) pages[id >>> PAGE_SHIFT][id & PAGE_MASK]);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public <T extends Task> Iterator<T> iterator(TaskTypes type) {
+        return new TypeIterator<>((byte) (type.ordinal() + 1));
+    }
+
+    /**
+     * Обход ячеек одного типа: следующая задача ищется заранее, пустые страницы пропускаются целиком.
+     */
+    private class TypeIterator<T extends Task> implements Iterator<T> {
+        private final byte tag;
+        private int lastId = -1;
+        private T next;
+
+        TypeIterator(byte tag) {
+            this.tag = tag;
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            int id = lastId + 1;
+            while (id >= 0 && (id >>> PAGE_SHIFT) < tags.length) {
+                byte[] tagPage = tags[id >>> PAGE_SHIFT];
+                if (tagPage == null) {
+                    id = (id | PAGE_MASK) + 1;
+                } else if (tagPage[id & PAGE_MASK] == tag) {
+                    lastId = id;
+                    next = (T) pages[id >>> PAGE_SHIFT][id & PAGE_MASK];
+                    return;
+                } else {
+                    id++;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            T task = next;
+            advance();
+            return task;
+        }
+    }
+
+    @Override
+    public void clear() {
+        pages = new Task[1][];
+        tags = new byte[1][];
+        Arrays.fill(counts, 0);
+    }
+}
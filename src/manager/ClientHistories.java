@@ -0,0 +1,160 @@
+package manager;
+
+import model.Task;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Истории просмотров по клиентам: у каждого клиента своя небольшая история с вытеснением.
+ * Клиенты не блокируют друг друга - блокировка только на истории самого клиента.
+ * Истории клиентов, которые не обращались дольше idleTimeout, удаляются при очередной записи.
+ * Клиентов не больше maxClients: новый клиент сверх лимита вытесняет того, кто обращался раньше всех.
+ */
+class ClientHistories {
+    static final int DEFAULT_CAPACITY = 50;
+    static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    static final int DEFAULT_MAX_CLIENTS = 10_000;
+
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final int maxClients;
+    private final long idleMillis;
+    private final Clock clock;
+    private volatile long lastSweep;
+
+    private static class Partition {
+        final HistoryManager history;
+        volatile long lastAccess;
+
+        Partition(int capacity, long now) {
+            this.history = new InMemoryHistoryManager(capacity, null);
+            this.lastAccess = now;
+        }
+    }
+
+    ClientHistories() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_CLIENTS, DEFAULT_IDLE_TIMEOUT, Clock.systemUTC());
+    }
+
+    ClientHistories(int capacity, int maxClients, Duration idleTimeout, Clock clock) {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Время простоя клиента должно быть положительным.");
+        }
+        if (maxClients <= 0) {
+            throw new IllegalArgumentException("Число клиентов должно быть положительным.");
+        }
+        this.capacity = capacity;
+        this.maxClients = maxClients;
+        this.idleMillis = idleTimeout.toMillis();
+        this.clock = clock;
+        this.lastSweep = clock.millis();
+    }
+
+    /**
+     * Записать просмотр задачи клиентом.
+     * Запись идет внутри compute: удаление простаивающей истории не может вклиниться между
+     * получением истории и записью в нее, иначе просмотр попал бы в уже удаленную историю.
+     */
+    void add(String clientId, Task task) {
+        long now = clock.millis();
+        if (now - lastSweep >= idleMillis / 2) {
+            evictIdle(now);
+        }
+        if (partitions.size() >= maxClients && !partitions.containsKey(clientId)) {
+            evictLeastRecent();
+        }
+        partitions.compute(clientId, (key, partition) -> {
+            if (partition == null) {
+                partition = new Partition(capacity, now);
+            }
+            synchronized (partition) {
+                partition.history.add(task);
+                partition.lastAccess = now;
+            }
+            return partition;
+        });
+    }
+
+    /**
+     * История клиента, для неизвестного клиента - пустая.
+     */
+    List<Task> getHistory(String clientId) {
+        Partition partition = partitions.get(clientId);
+        if (partition == null) {
+            return Collections.emptyList();
+        }
+        synchronized (partition) {
+            partition.lastAccess = clock.millis();
+            return partition.history.getHistory();
+        }
+    }
+
+    /**
+     * Удалить задачу из историй всех клиентов.
+     */
+    void remove(int id) {
+        for (Partition partition : partitions.values()) {
+            synchronized (partition) {
+                partition.history.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Удалить задачи из историй всех клиентов, каждую историю - под одной блокировкой.
+     */
+    void removeAll(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (Partition partition : partitions.values()) {
+            synchronized (partition) {
+                for (int id : ids) {
+                    partition.history.remove(id);
+                }
+            }
+        }
+    }
+
+    int size() {
+        return partitions.size();
+    }
+
+    /**
+     * Системный. Для удаления историй простаивающих клиентов.
+     */
+    private void evictIdle(long now) {
+        lastSweep = now;
+        for (String clientId : partitions.keySet()) {
+            partitions.computeIfPresent(clientId,
+                    (key, partition) -> now - partition.lastAccess >= idleMillis ? null : partition);
+        }
+    }
+
+    /**
+     * Системный. Для места под нового клиента: удаляется история, к которой обращались раньше всех.
+     * Время обращения проверяется еще раз внутри compute - клиент мог обратиться после выбора.
+     */
+    private void evictLeastRecent() {
+        String oldestId = null;
+        long oldestAccess = Long.MAX_VALUE;
+        for (Map.Entry<String, Partition> entry : partitions.entrySet()) {
+            long lastAccess = entry.getValue().lastAccess;
+            if (lastAccess < oldestAccess) {
+                oldestId = entry.getKey();
+                oldestAccess = lastAccess;
+            }
+        }
+        if (oldestId != null) {
+            final long chosenAccess = oldestAccess;
+            partitions.computeIfPresent(oldestId,
+                    (key, partition) -> partition.lastAccess == chosenAccess ? null : partition);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package manager;
+
+import model.Task;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Потокобезопасная история без блокировки на просмотре.
+ * Просмотр только добавляется в неблокирующую очередь; в историю очередь переносит тот поток,
+ * которому удалось взять блокировку через tryLock, остальные не ждут.
+ * Чтение, удаление и очистка сначала переносят очередь, поэтому видят все просмотры до вызова.
+ */
+class ConcurrentHistoryManager implements HistoryManager {
+    private final HistoryManager historyManager;
+    private final Queue<Task> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    ConcurrentHistoryManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        lock.lock();
+        try {
+            drain();
+            return historyManager.getHistory();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void add(Task task) {
+        pending.add(task);
+        // Просмотр, добавленный после переноса, но до unlock, подберет этот же цикл.
+        while (!pending.isEmpty() && lock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        lock.lock();
+        try {
+            drain();
+            historyManager.remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            pending.clear();
+            historyManager.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Системный. Для переноса просмотров из очереди в историю, вызывается под блокировкой.
+     */
+    private void drain() {
+        Task task;
+        while ((task = pending.poll()) != null) {
+            historyManager.add(task);
+        }
+    }
+}
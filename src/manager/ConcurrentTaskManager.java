@@ -0,0 +1,374 @@
+package manager;
+
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+import model.TaskTypes;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Потокобезопасный
+ * Менеджер задач.
+ * Запись идет под эксклюзивной блокировкой, чтение - под разделяемой.
+ * Структуры менеджера не потокобезопасны, поэтому без блокировки читаются только отдельные поля,
+ * задачи по id и опубликованный снимок. Снимок публикует сама запись перед снятием блокировки.
+ */
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private final StampedLock lock = new StampedLock();
+    private final AtomicInteger idGenerator = new AtomicInteger();
+
+    public ConcurrentTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    /**
+     * Менеджер с заданной историей: запись в нее идет через неблокирующую обертку.
+     */
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        super(new ConcurrentHistoryManager(historyManager));
+        enableSnapshots();
+        publishSnapshot();
+    }
+
+    @Override
+    protected int generateId() {
+        return idGenerator.incrementAndGet();
+    }
+
+    @Override
+    public ArrayList<Task> getAllTasks() {
+        return sharedRead(super::getAllTasks);
+    }
+
+    @Override
+    public ArrayList<Epic> getAllEpics() {
+        return sharedRead(super::getAllEpics);
+    }
+
+    @Override
+    public ArrayList<SubTask> getAllSubTasks() {
+        return sharedRead(super::getAllSubTasks);
+    }
+
+    @Override
+    public ArrayList<SubTask> getSubTasksByEpic(int epicId) {
+        return sharedRead(() -> super.getSubTasksByEpic(epicId));
+    }
+
+    @Override
+    public List<Task> getPage(TaskTypes type, int afterId, int limit) {
+        return sharedRead(() -> super.getPage(type, afterId, limit));
+    }
+
+    /**
+     * Обход снимка: хранилище нельзя обходить параллельно с записью.
+     */
+    @Override
+    public Iterator<Task> iterate(TaskTypes type) {
+        return Collections.<Task>unmodifiableList(getSnapshot().getByType(type)).iterator();
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return optimisticView(id, TaskTypes.TASK, () -> super.getTask(id));
+    }
+
+    @Override
+    public SubTask getSubTask(int id) {
+        return optimisticView(id, TaskTypes.SUBTASK, () -> super.getSubTask(id));
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return optimisticView(id, TaskTypes.EPIC, () -> super.getEpic(id));
+    }
+
+    @Override
+    public Object addTask(Task task) {
+        return write(() -> super.addTask(task));
+    }
+
+    @Override
+    public Object addSubTask(SubTask subTask) {
+        return write(() -> super.addSubTask(subTask));
+    }
+
+    @Override
+    public Object addEpic(Epic epic) {
+        return write(() -> super.addEpic(epic));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        write(() -> super.updateTask(task));
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTask) {
+        write(() -> super.updateSubTask(subTask));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        write(() -> super.updateEpic(epic));
+    }
+
+    @Override
+    public void removeTask(int id) {
+        write(() -> super.removeTask(id));
+    }
+
+    @Override
+    public void removeSubTask(int id) {
+        write(() -> super.removeSubTask(id));
+    }
+
+    @Override
+    public void removeEpic(int id) {
+        write(() -> super.removeEpic(id));
+    }
+
+    @Override
+    public void clearTasks() {
+        write(super::clearTasks);
+    }
+
+    @Override
+    public void clearEpics() {
+        write(super::clearEpics);
+    }
+
+    @Override
+    public void clearSubTasks() {
+        write(super::clearSubTasks);
+    }
+
+    @Override
+    public List<Integer> addAll(Task... tasks) {
+        return write(() -> super.addAll(tasks));
+    }
+
+    @Override
+    public void updateAll(Task... tasks) {
+        write(() -> super.updateAll(tasks));
+    }
+
+    @Override
+    public void removeAll(int... ids) {
+        write(() -> super.removeAll(ids));
+    }
+
+    @Override
+    public void addDependency(int taskId, int blockedById) {
+        write(() -> super.addDependency(taskId, blockedById));
+    }
+
+    @Override
+    public void removeDependency(int taskId, int blockedById) {
+        write(() -> super.removeDependency(taskId, blockedById));
+    }
+
+    @Override
+    public long getEarliestStart(int taskId) {
+        return sharedRead(() -> super.getEarliestStart(taskId));
+    }
+
+    @Override
+    public List<Task> getCriticalPath() {
+        return sharedRead(super::getCriticalPath);
+    }
+
+    @Override
+    public List<Task> search(String query) {
+        return sharedRead(() -> super.search(query));
+    }
+
+    @Override
+    public List<Task> getByStatus(Status status) {
+        return sharedRead(() -> super.getByStatus(status));
+    }
+
+    @Override
+    public List<Task> getByStatus(TaskTypes type, Status status) {
+        return sharedRead(() -> super.getByStatus(type, status));
+    }
+
+    @Override
+    public int countByStatus(Status status) {
+        return sharedRead(() -> super.countByStatus(status));
+    }
+
+    @Override
+    public int countByStatus(TaskTypes type, Status status) {
+        return sharedRead(() -> super.countByStatus(type, status));
+    }
+
+    @Override
+    public Map<Status, List<Task>> getKanbanColumns(TaskTypes type) {
+        return sharedRead(() -> super.getKanbanColumns(type));
+    }
+
+    @Override
+    public List<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        return sharedRead(() -> super.getTasksStartingBetween(from, to));
+    }
+
+    @Override
+    public List<Task> getTasksActiveAt(LocalDateTime time) {
+        return sharedRead(() -> super.getTasksActiveAt(time));
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(int duration, LocalDateTime notBefore) {
+        return sharedRead(() -> super.findFreeSlot(duration, notBefore));
+    }
+
+    @Override
+    public void setDailyCapacity(int minutes) {
+        write(() -> super.setDailyCapacity(minutes));
+    }
+
+    @Override
+    public int getDailyCapacity() {
+        return optimisticRead(super::getDailyCapacity);
+    }
+
+    @Override
+    public int getDailyLoad(LocalDate day) {
+        return sharedRead(() -> super.getDailyLoad(day));
+    }
+
+    @Override
+    public SortedMap<LocalDate, Integer> getDailyLoads(LocalDate from, LocalDate to) {
+        return sharedRead(() -> super.getDailyLoads(from, to));
+    }
+
+    /**
+     * Снимок последней записи, без блокировки и без копирования.
+     */
+    @Override
+    public TaskSnapshot getSnapshot() {
+        return publishedSnapshot();
+    }
+
+    /**
+     * Из снимка: живое представление нельзя обходить параллельно с записью.
+     */
+    @Override
+    public Set<Task> getPrioritizedTasks() {
+        return getSnapshot().getPrioritizedTasks();
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return inMemoryHistoryManager.getHistory();
+    }
+
+    /**
+     * Системный. Чтение без блокировки с проверкой штампа - только для полей, прочитанных в локальные переменные.
+     * Обход дерева, словаря или списка так читать нельзя: на середине перестройки обход может
+     * зациклиться или упасть с Error, и до проверки штампа дело не дойдет.
+     * Если во время чтения была запись, чтение повторяется под разделяемой блокировкой.
+     */
+    private <R> R optimisticRead(Supplier<R> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                R result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        return sharedRead(reader);
+    }
+
+    /**
+     * Системный. Просмотр одной задачи без блокировки: поиск в хранилище - чтение одной ячейки массива.
+     * Просмотр пишется в историю после проверки штампа. Если запись успела пройти до конца просмотра,
+     * задача могла быть удалена или заменена: тогда под разделяемой блокировкой просмотр
+     * удаляется из истории или переписывается на текущую версию задачи.
+     * Задачи нет или штамп не прошел проверку до записи просмотра - обычное чтение под блокировкой.
+     */
+    private <T extends Task> T optimisticView(int id, TaskTypes type, Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            T task = null;
+            try {
+                task = store.get(id, type);
+            } catch (RuntimeException e) {
+                // хранилище перестраивалось, штамп не пройдет проверку
+            }
+            if (task != null && lock.validate(stamp)) {
+                recordView(task);
+                if (!lock.validate(stamp)) {
+                    final T viewed = task;
+                    sharedRead(() -> {
+                        Task current = store.get(id, type);
+                        if (current == null) {
+                            forgetView(id);
+                        } else if (current != viewed) {
+                            inMemoryHistoryManager.add(current);
+                        }
+                        return null;
+                    });
+                }
+                return task;
+            }
+        }
+        return sharedRead(reader);
+    }
+
+    /**
+     * Системный. Чтение под разделяемой блокировкой: для обходов структур менеджера
+     * и для чтений, которые пишут в историю, иначе удаленная задача может вернуться в историю.
+     */
+    private <R> R sharedRead(Supplier<R> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Системный. Запись под эксклюзивной блокировкой, новая версия снимка публикуется до ее снятия.
+     */
+    private <R> R write(Supplier<R> writer) {
+        long stamp = lock.writeLock();
+        try {
+            return writer.get();
+        } finally {
+            publishSnapshot();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void write(Runnable writer) {
+        long stamp = lock.writeLock();
+        try {
+            writer.run();
+        } finally {
+            publishSnapshot();
+            lock.unlockWrite(stamp);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package manager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Индекс загрузки по календарным дням (UTC): сколько минут задач приходится на каждый день.
+ * Задача через полночь делится между днями. Изменение задачи и проверка дня - O(log d),
+ * где d - число занятых дней; задача обычно занимает один-два дня.
+ * Интервалы задач лежат в массивах по id: объекты создаются на занятый день, а не на задачу.
+ */
+class DailyWorkload {
+    static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final TreeMap<Long, Integer> loads = new TreeMap<>();
+    private long[] starts = new long[0];        // по id
+    private int[] durations = new int[0];
+    private int[] periods = new int[0];
+    private int[] counts = new int[0];          // число повторений, 0 - интервала нет
+
+    /**
+     * Части интервала по дням.
+     */
+    interface DaySlice {
+        void accept(long epochDay, int minutes);
+    }
+
+    /**
+     * Разбить интервал [start, finish) в минутах от эпохи на части по дням.
+     */
+    static void forEachDay(long start, long finish, DaySlice slice) {
+        for (long day = Math.floorDiv(start, MINUTES_PER_DAY); day * MINUTES_PER_DAY < finish; day++) {
+            long from = Math.max(start, day * MINUTES_PER_DAY);
+            long to = Math.min(finish, (day + 1) * MINUTES_PER_DAY);
+            slice.accept(day, (int) (to - from));
+        }
+    }
+
+    /**
+     * Добавить задачу или заменить ее прежний интервал.
+     */
+    void put(int id, long start, long finish) {
+        put(id, start, (int) (finish - start), 0, 1);
+    }
+
+    /**
+     * Добавить повторяющуюся задачу: count интервалов длины duration через каждые period минут.
+     * Хранится одно правило, повторения раскладываются по дням только при изменении.
+     */
+    void put(int id, long start, int duration, int period, int count) {
+        remove(id);
+        if (duration <= 0 || count <= 0) {
+            return;
+        }
+        grow(id);
+        starts[id] = start;
+        durations[id] = duration;
+        periods[id] = period;
+        counts[id] = count;
+        forEachDay(id, (day, minutes) -> loads.merge(day, minutes, Integer::sum));
+    }
+
+    void remove(int id) {
+        forEachDay(id, (day, minutes) ->
+                loads.computeIfPresent(day, (key, load) -> load == minutes ? null : load - minutes));
+        if (id >= 0 && id < counts.length) {
+            counts[id] = 0;
+        }
+    }
+
+    /**
+     * Части текущих интервалов задачи по дням.
+     */
+    void forEachDay(int id, DaySlice slice) {
+        if (id < 0 || id >= counts.length) {
+            return;
+        }
+        for (int index = 0; index < counts[id]; index++) {
+            long start = starts[id] + (long) index * periods[id];
+            forEachDay(start, start + durations[id], slice);
+        }
+    }
+
+    /**
+     * Занято минут в день.
+     */
+    int load(long epochDay) {
+        return loads.getOrDefault(epochDay, 0);
+    }
+
+    /**
+     * Занятые дни в диапазоне [fromDay, toDay], только для чтения.
+     */
+    SortedMap<Long, Integer> loads(long fromDay, long toDay) {
+        return Collections.unmodifiableSortedMap(loads.subMap(fromDay, true, toDay, true));
+    }
+
+    void clear() {
+        loads.clear();
+        Arrays.fill(counts, 0);
+    }
+
+    /**
+     * Системный. Для места под id: массивы растут вдвое.
+     */
+    private void grow(int id) {
+        if (id < counts.length) {
+            return;
+        }
+        int length = Math.max(id + 1, counts.length * 2);
+        starts = Arrays.copyOf(starts, length);
+        durations = Arrays.copyOf(durations, length);
+        periods = Arrays.copyOf(periods, length);
+        counts = Arrays.copyOf(counts, length);
+    }
+}
@@ -0,0 +1,323 @@
+package manager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Граф зависимостей задач: ребро от блокирующей задачи к заблокированной.
+ * Узел со множествами ребер есть только у задач, у которых есть зависимости: задача без ребер
+ * начинается в нуле, и от нее хранится только продолжительность в массиве по id.
+ * Самую длинную задачу без ребер ищет дерево максимумов над этим массивом.
+ * После изменения пересчитываются только задачи, достижимые из измененной,
+ * в топологическом порядке внутри этого подграфа.
+ */
+class DependencyGraph {
+    private static final int NONE = -1;
+
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final TreeSet<Node> byFinish = new TreeSet<>(
+            Comparator.comparingLong(Node::finish).thenComparingInt(node -> node.id));
+    private int[] durations = new int[0];   // по id, NONE - задачи нет
+    private int[] longest = new int[0];     // дерево: id самой длинной задачи в отрезке, при равенстве больший id
+    private int leaves;
+
+    private static class Node {
+        final int id;
+        int duration;
+        long earliestStart;
+        final Set<Integer> predecessors = new LinkedHashSet<>();
+        final Set<Integer> successors = new LinkedHashSet<>();
+
+        Node(int id) {
+            this.id = id;
+        }
+
+        long finish() {
+            return earliestStart + duration;
+        }
+    }
+
+    /**
+     * Добавить задачу или изменить ее продолжительность.
+     */
+    void put(int id, int duration) {
+        setDuration(id, duration);
+        Node node = nodes.get(id);
+        if (node == null || node.duration == duration) {
+            return;
+        }
+        byFinish.remove(node);
+        node.duration = duration;
+        byFinish.add(node);
+        recompute(node.successors);
+    }
+
+    /**
+     * Удалить задачу вместе с ее ребрами.
+     *
+     * @return задачи, которые она блокировала
+     */
+    Set<Integer> remove(int id) {
+        if (contains(id)) {
+            setDuration(id, NONE);
+        }
+        Node node = nodes.remove(id);
+        if (node == null) {
+            return Collections.emptySet();
+        }
+        byFinish.remove(node);
+        for (int predecessorId : node.predecessors) {
+            Node predecessor = nodes.get(predecessorId);
+            predecessor.successors.remove(id);
+            dropIfIsolated(predecessor);
+        }
+        for (int successorId : node.successors) {
+            nodes.get(successorId).predecessors.remove(id);
+        }
+        recompute(node.successors);
+        for (int successorId : node.successors) {
+            dropIfIsolated(nodes.get(successorId));
+        }
+        return node.successors;
+    }
+
+    boolean contains(int id) {
+        return id >= 0 && id < leaves && durations[id] != NONE;
+    }
+
+    /**
+     * Задача id не может начаться, пока не завершится blockedById.
+     */
+    void addEdge(int id, int blockedById) {
+        if (!contains(id) || !contains(blockedById)) {
+            throw new IllegalArgumentException("Ошибка! нет задачи для зависимости");
+        }
+        Node node = nodes.get(id);
+        if (node != null && node.predecessors.contains(blockedById)) {
+            return;
+        }
+        if (reaches(id, blockedById)) {
+            throw new IllegalArgumentException("Ошибка! зависимость " + id + " от " + blockedById
+                    + " образует цикл");
+        }
+        node = node(id);
+        node.predecessors.add(blockedById);
+        node(blockedById).successors.add(id);
+        recompute(Set.of(id));
+    }
+
+    void removeEdge(int id, int blockedById) {
+        Node node = nodes.get(id);
+        if (node == null || !node.predecessors.remove(blockedById)) {
+            return;
+        }
+        Node blocker = nodes.get(blockedById);
+        blocker.successors.remove(id);
+        recompute(Set.of(id));
+        dropIfIsolated(node);
+        dropIfIsolated(blocker);
+    }
+
+    /**
+     * Самое раннее начало задачи в минутах от начала проекта.
+     */
+    long earliestStart(int id) {
+        if (!contains(id)) {
+            throw new IllegalArgumentException("Такой задачи нет");
+        }
+        Node node = nodes.get(id);
+        return node == null ? 0 : node.earliestStart;
+    }
+
+    /**
+     * Критический путь: цепочка, которая заканчивается позже всех, от первой задачи к последней.
+     * Если позже всех заканчивается задача без зависимостей, путь из нее одной.
+     */
+    List<Integer> criticalPath() {
+        List<Integer> path = new ArrayList<>();
+        int longestId = leaves == 0 ? NONE : longest[1];
+        if (longestId == NONE) {
+            return path;
+        }
+        Node last = byFinish.isEmpty() ? null : byFinish.last();
+        if (last == null || durations[longestId] > last.finish()
+                || durations[longestId] == last.finish() && longestId > last.id) {
+            path.add(longestId);
+            return path;
+        }
+        Node node = last;
+        while (node != null) {
+            path.add(node.id);
+            Node previous = null;
+            for (int predecessorId : node.predecessors) {
+                Node predecessor = nodes.get(predecessorId);
+                if (predecessor.finish() == node.earliestStart) {
+                    previous = predecessor;
+                    break;
+                }
+            }
+            node = previous;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    void clear() {
+        nodes.clear();
+        byFinish.clear();
+        durations = new int[0];
+        longest = new int[0];
+        leaves = 0;
+    }
+
+    /**
+     * Системный. Для узла задачи, которой добавляется ребро.
+     */
+    private Node node(int id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            node = new Node(id);
+            node.duration = durations[id];
+            nodes.put(id, node);
+            byFinish.add(node);
+        }
+        return node;
+    }
+
+    /**
+     * Системный. Для удаления узла без ребер: его раннее начало уже пересчитано в ноль.
+     */
+    private void dropIfIsolated(Node node) {
+        if (node.predecessors.isEmpty() && node.successors.isEmpty()) {
+            byFinish.remove(node);
+            nodes.remove(node.id);
+        }
+    }
+
+    /**
+     * Системный. Для записи продолжительности в массив и пути дерева максимумов от листа к корню.
+     */
+    private void setDuration(int id, int duration) {
+        if (id >= leaves) {
+            grow(id);
+        }
+        durations[id] = duration;
+        int index = leaves + id;
+        longest[index] = duration == NONE ? NONE : id;
+        for (index >>= 1; index > 0; index >>= 1) {
+            longest[index] = longer(longest[2 * index], longest[2 * index + 1]);
+        }
+    }
+
+    private void grow(int id) {
+        int grown = Math.max(16, Integer.highestOneBit(id) << 1);
+        int[] grownDurations = Arrays.copyOf(durations, grown);
+        Arrays.fill(grownDurations, leaves, grown, NONE);
+        durations = grownDurations;
+        leaves = grown;
+        longest = new int[2 * grown];
+        for (int i = 0; i < grown; i++) {
+            longest[grown + i] = durations[i] == NONE ? NONE : i;
+        }
+        for (int index = grown - 1; index > 0; index--) {
+            longest[index] = longer(longest[2 * index], longest[2 * index + 1]);
+        }
+    }
+
+    private int longer(int first, int second) {
+        if (first == NONE) {
+            return second;
+        }
+        if (second == NONE) {
+            return first;
+        }
+        if (durations[first] != durations[second]) {
+            return durations[first] > durations[second] ? first : second;
+        }
+        return Math.max(first, second);
+    }
+
+    private boolean reaches(int fromId, int toId) {
+        if (fromId == toId) {
+            return true;
+        }
+        if (!nodes.containsKey(fromId)) {
+            return false;
+        }
+        Deque<Integer> stack = new ArrayDeque<>();
+        Set<Integer> visited = new HashSet<>();
+        stack.push(fromId);
+        while (!stack.isEmpty()) {
+            for (int successorId : nodes.get(stack.pop()).successors) {
+                if (successorId == toId) {
+                    return true;
+                }
+                if (visited.add(successorId)) {
+                    stack.push(successorId);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Пересчет раннего начала для roots и всех задач, достижимых из них.
+     * Каждая задача подграфа пересчитывается один раз, после всех своих предшественников из подграфа.
+     */
+    private void recompute(Set<Integer> roots) {
+        if (roots.isEmpty()) {
+            return;
+        }
+        Map<Integer, Integer> pending = new HashMap<>();
+        Deque<Integer> stack = new ArrayDeque<>(roots);
+        for (int rootId : roots) {
+            pending.put(rootId, 0);
+        }
+        while (!stack.isEmpty()) {
+            for (int successorId : nodes.get(stack.pop()).successors) {
+                if (pending.putIfAbsent(successorId, 0) == null) {
+                    stack.push(successorId);
+                }
+            }
+        }
+        for (int id : pending.keySet()) {
+            for (int successorId : nodes.get(id).successors) {
+                pending.merge(successorId, 1, Integer::sum);
+            }
+        }
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (Map.Entry<Integer, Integer> entry : pending.entrySet()) {
+            if (entry.getValue() == 0) {
+                ready.add(entry.getKey());
+            }
+        }
+        while (!ready.isEmpty()) {
+            Node node = nodes.get(ready.poll());
+            long earliestStart = 0;
+            for (int predecessorId : node.predecessors) {
+                earliestStart = Math.max(earliestStart, nodes.get(predecessorId).finish());
+            }
+            if (earliestStart != node.earliestStart) {
+                byFinish.remove(node);
+                node.earliestStart = earliestStart;
+                byFinish.add(node);
+            }
+            for (int successorId : node.successors) {
+                if (pending.merge(successorId, -1, Integer::sum) == 0) {
+                    ready.add(successorId);
+                }
+            }
+        }
+    }
+}
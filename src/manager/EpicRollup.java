@@ -0,0 +1,97 @@
+package manager;
+
+import model.Epic;
+import model.EpochMinutes;
+import model.Status;
+import model.SubTask;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Агрегаты эпика по его подзадачам: счетчики статусов, начала и окончания,
+ * сумма продолжительностей. Изменение одной подзадачи пересчитывается за O(log n).
+ */
+class EpicRollup {
+    private final Map<Integer, Contribution> contributions = new HashMap<>();
+    private final int[] statusCounters = new int[Status.values().length];
+    private final TreeMap<Long, Integer> starts = new TreeMap<>();
+    private final TreeMap<Long, Integer> finishes = new TreeMap<>();
+    private long durationSum = 0;
+
+    /**
+     * Вклад подзадачи в агрегаты на момент добавления.
+     */
+    private static class Contribution {
+        final Status status;
+        final long startMinute;
+        final long finishMinute;
+        final int duration;
+
+        Contribution(SubTask subTask) {
+            this.status = subTask.getStatus() == null ? Status.NEW : subTask.getStatus();
+            this.startMinute = subTask.getStartMinute();
+            this.finishMinute = subTask.getFinishMinute();
+            this.duration = subTask.getDuration();
+        }
+    }
+
+    /**
+     * Добавить или обновить подзадачу.
+     */
+    void put(SubTask subTask) {
+        remove(subTask.getId());
+        Contribution contribution = new Contribution(subTask);
+        contributions.put(subTask.getId(), contribution);
+        statusCounters[contribution.status.ordinal()]++;
+        if (contribution.startMinute != EpochMinutes.NONE) {
+            starts.merge(contribution.startMinute, 1, Integer::sum);
+            finishes.merge(contribution.finishMinute, 1, Integer::sum);
+        }
+        durationSum += contribution.duration;
+    }
+
+    /**
+     * Убрать подзадачу.
+     */
+    void remove(int subTaskId) {
+        Contribution contribution = contributions.remove(subTaskId);
+        if (contribution == null) {
+            return;
+        }
+        statusCounters[contribution.status.ordinal()]--;
+        if (contribution.startMinute != EpochMinutes.NONE) {
+            decrement(starts, contribution.startMinute);
+            decrement(finishes, contribution.finishMinute);
+        }
+        durationSum -= contribution.duration;
+    }
+
+    private static void decrement(TreeMap<Long, Integer> counters, long time) {
+        counters.computeIfPresent(time, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    boolean contains(int subTaskId) {
+        return contributions.containsKey(subTaskId);
+    }
+
+    /**
+     * Записать статус, время начала, продолжительность и окончание в эпик.
+     */
+    void applyTo(Epic epic) {
+        int size = contributions.size();
+        if (size == 0 || statusCounters[Status.NEW.ordinal()] == size) {
+            epic.setStatus(Status.NEW);
+        } else if (statusCounters[Status.DONE.ordinal()] == size) {
+            epic.setStatus(Status.DONE);
+        } else {
+            epic.setStatus(Status.IN_PROGRESS);
+        }
+        long now = starts.isEmpty() ? EpochMinutes.of(LocalDateTime.now()) : EpochMinutes.NONE;
+        epic.setStartMinute(starts.isEmpty() ? now : starts.firstKey());
+        epic.setDuration((int) durationSum);
+        epic.setFinishMinute(finishes.isEmpty() ? now : finishes.lastKey());
+    }
+}
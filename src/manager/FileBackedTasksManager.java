@@ -4,14 +4,19 @@ import exceptions.ManagerSaveException;
 import model.*;
 
 import java.io.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 
 public class FileBackedTasksManager extends InMemoryTaskManager {
+    private static final String HEADER = "id,type,name,status,description,epicId,startTime,duration,blockedBy,period,count";
+    private static final int COLUMNS = HEADER.split(",").length;
     private final File file;
 
     public FileBackedTasksManager() {
@@ -23,6 +28,14 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     }
 
     public FileBackedTasksManager(File file, boolean load) {
+        this(file, load, Managers.getDefaultHistory());
+    }
+
+    /**
+     * Менеджер с заданной историей, в файл пишутся id из нее.
+     */
+    public FileBackedTasksManager(File file, boolean load, HistoryManager historyManager) {
+        super(historyManager);
         this.file = file;
         if (load) {
             load();
@@ -35,49 +48,77 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
         return manager;
     }
 
-    // метод для упаковки задач в строки
+    // Метод для упаковки задач в строки. Колонки у всех строк одни - как в заголовке,
+    // ненужные типу задачи колонки пустые: epicId - у подзадач, period и count - у повторяющихся задач
     private String toString(Task task) {
         TaskTypes typeTask = task.getType();
-        switch (typeTask) {
-            case TASK:
-            case EPIC:
-                return task.getId() +
-                        "," + typeTask +
-                        "," + task.getName() +
-                        "," + task.getStatus() +
-                        "," + task.getDescription() +
-                        "," + task.getStartTime() +
-                        "," + task.getDuration();
+        String line = task.getId() +
+                "," + typeTask +
+                "," + task.getName() +
+                "," + task.getStatus() +
+                "," + task.getDescription() +
+                "," + (typeTask == TaskTypes.SUBTASK ? String.valueOf(((SubTask) task).getEpicId()) : "") +
+                "," + task.getStartTime() +
+                "," + task.getDuration() +
+                "," + blockedByToString(task);
+        if (task instanceof RecurringTask) {
+            return line + "," + ((RecurringTask) task).getPeriod() + "," + ((RecurringTask) task).getCount();
+        }
+        return line + ",,";
+    }
 
-            case SUBTASK:
-                return task.getId() +
-                        "," + typeTask +
-                        "," + task.getName() +
-                        "," + task.getStatus() +
-                        "," + task.getDescription() +
-                        "," + SubTask.getEpicId() +
-                        "," + task.getStartTime() +
-                        "," + task.getDuration();
-            default:
-                return null;
+    // id блокирующих задач через точку с запятой, без зависимостей колонка пустая
+    private static String blockedByToString(Task task) {
+        if (task.getType() == TaskTypes.EPIC) {
+            return "";
+        }
+        StringJoiner ids = new StringJoiner(";");
+        for (int blockedById : task.getBlockedBy()) {
+            ids.add(String.valueOf(blockedById));
+        }
+        return ids.toString();
+    }
+
+    private static List<Integer> blockedByFromString(String column) {
+        List<Integer> blockedBy = new ArrayList<>();
+        if (!column.isEmpty()) {
+            for (String blockedById : column.split(";")) {
+                blockedBy.add(Integer.valueOf(blockedById));
+            }
         }
+        return blockedBy;
     }
 
     // Метод для восстановления задач из строк
     private Task fromString(String value) {
-        final String[] values = value.split(",");
+        final String[] values = value.split(",", -1);
+        if (values.length != COLUMNS) {
+            throw new IllegalArgumentException("Строка задачи не совпадает с заголовком: " + value);
+        }
         int id = Integer.parseInt(values[0]);
         TaskTypes taskType = TaskTypes.valueOf(values[1]);
         String name = values[2];
 
+        Task task;
         switch (taskType) {
             case TASK:
-                return new Task(id, name, values[4], Status.valueOf(values[3]));
+                // повторяющаяся задача - задача с правилом в колонках period и count
+                if (!values[9].isEmpty()) {
+                    task = new RecurringTask(id, name, values[4], Status.valueOf(values[3]),
+                            LocalDateTime.parse(values[6]), Integer.parseInt(values[7]),
+                            Integer.parseInt(values[9]), Integer.parseInt(values[10]));
+                } else {
+                    task = new Task(id, name, values[4], Status.valueOf(values[3]));
+                }
+                task.setBlockedBy(blockedByFromString(values[8]));
+                return task;
             case EPIC:
                 return new Epic(id, name, values[4], Status.valueOf(values[3]));
             case SUBTASK:
                 int epicId = Integer.parseInt(values[5]);
-                return new SubTask(id, name, values[4], Status.valueOf(values[3]), epicId);
+                task = new SubTask(id, name, values[4], Status.valueOf(values[3]), epicId);
+                task.setBlockedBy(blockedByFromString(values[8]));
+                return task;
             default:
                 return null;
         }
@@ -105,19 +146,13 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     // Метод для сохранения в файл
     void save() {
         try (final BufferedWriter writer = new BufferedWriter((new FileWriter(file, UTF_8)))) {
-            writer.write("id,type,name,status,description,epicId,startTime,duration");
+            writer.write(HEADER);
             writer.newLine();
-            for (Map.Entry<Integer, Task> entry : tasks.entrySet()) {
-                writer.append(toString(entry.getValue()));
-                writer.newLine();
-            }
-            for (Map.Entry<Integer, Epic> entry : epics.entrySet()) {
-                writer.append(toString(entry.getValue()));
-                writer.newLine();
-            }
-            for (Map.Entry<Integer, SubTask> entry : subTasks.entrySet()) {
-                writer.append(toString(entry.getValue()));
-                writer.newLine();
+            for (TaskTypes type : new TaskTypes[]{TaskTypes.TASK, TaskTypes.EPIC, TaskTypes.SUBTASK}) {
+                for (Task task : store.<Task>values(type)) {
+                    writer.append(toString(task));
+                    writer.newLine();
+                }
             }
             writer.newLine();
             writer.append(toString(inMemoryHistoryManager));
@@ -129,6 +164,7 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     // Метод для загрузки из файла
      void load() {
         int maxId = 0;
+        Map<Integer, List<Integer>> blockedBy = new LinkedHashMap<>();
         try (final BufferedReader reader = new BufferedReader(new FileReader(file, UTF_8))) {
             reader.readLine();
             while (true) {
@@ -138,32 +174,26 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
                 }
                 final Task task = fromString(line);
                 final int id = task.getId();
-                if (task.getType() == TaskTypes.TASK) {
-                    tasks.put(id, task);
-                } else if (task.getType() == TaskTypes.EPIC) {
-                    epics.put(id, (Epic) task);
-                } else if (task.getType() == TaskTypes.SUBTASK) {
-                    subTasks.put(id, (SubTask) task);
-                    Epic epic = epics.get(((SubTask) task).getEpicId());
-                    epic.getSubTasks().add(id);
+                if (!task.getBlockedBy().isEmpty()) {
+                    blockedBy.put(id, task.getBlockedBy());
                 }
+                restoreTask(task);
                 if (maxId < id) {
                     maxId = id;
                 }
             }
+            // ребра ставятся, когда загружены обе задачи
+            restoreDependencies(blockedBy);
             String line = reader.readLine();
-            for (int id : historyFromString(line)) {
-                if (tasks.containsKey(id)) {
-                    Task task = tasks.get(id);
-                    inMemoryHistoryManager.add(task);
-                } else if (epics.containsKey(id)) {
-                    Epic epic = epics.get(id);
-                    inMemoryHistoryManager.add(epic);
-                } else if (subTasks.containsKey(id)) {
-                    SubTask subTask = subTasks.get(id);
-                    inMemoryHistoryManager.add(subTask);
-                } else {
-                    System.out.println("Нечего выводить");
+            // пустая история сохраняется пустой строкой
+            if (line != null && !line.isEmpty()) {
+                for (int id : historyFromString(line)) {
+                    Task task = store.get(id);
+                    if (task != null) {
+                        inMemoryHistoryManager.add(task);
+                    } else {
+                        System.out.println("Нечего выводить");
+                    }
                 }
             }
         } catch (IOException e) {
@@ -198,20 +228,24 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
 
     @Override
     public Task getTask(int id) {
+        // сохранение после чтения: просмотр уже в истории
+        final Task task = super.getTask(id);
         save();
-        return super.getTask(id);
+        return task;
     }
 
     @Override
     public SubTask getSubTask(int id) {
+        final SubTask subTask = super.getSubTask(id);
         save();
-        return super.getSubTask(id);
+        return subTask;
     }
 
     @Override
     public Epic getEpic(int id) {
+        final Epic epic = super.getEpic(id);
         save();
-        return super.getEpic(id);
+        return epic;
     }
 
     @Override
@@ -271,6 +305,55 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
         save();
     }
 
+    @Override
+    public void clearTasks() {
+        super.clearTasks();
+        save();
+    }
+
+    @Override
+    public void clearEpics() {
+        super.clearEpics();
+        save();
+    }
+
+    @Override
+    public void clearSubTasks() {
+        super.clearSubTasks();
+        save();
+    }
+
+    @Override
+    public void addDependency(int taskId, int blockedById) {
+        super.addDependency(taskId, blockedById);
+        save();
+    }
+
+    @Override
+    public void removeDependency(int taskId, int blockedById) {
+        super.removeDependency(taskId, blockedById);
+        save();
+    }
+
+    @Override
+    public List<Integer> addAll(Task... tasks) {
+        List<Integer> ids = super.addAll(tasks);
+        save();
+        return ids;
+    }
+
+    @Override
+    public void updateAll(Task... tasks) {
+        super.updateAll(tasks);
+        save();
+    }
+
+    @Override
+    public void removeAll(int... ids) {
+        super.removeAll(ids);
+        save();
+    }
+
     @Override
     public List<Task> getHistory() {
         save();
@@ -5,10 +5,15 @@ import com.google.gson.reflect.TypeToken;
 import model.Epic;
 import model.SubTask;
 import model.Task;
+import model.TaskTypes;
 
+import java.io.File;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class HTTPTaskManager extends FileBackedTasksManager {
 
@@ -16,58 +21,82 @@ public class HTTPTaskManager extends FileBackedTasksManager {
     private final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapterFactory(new TaskAdapterFactory())
             .create();
 
     public HTTPTaskManager() {
-        super();
+        this(Managers.getDefaultHistory());
+    }
+
+    /**
+     * Менеджер с заданной историей.
+     */
+    public HTTPTaskManager(HistoryManager historyManager) {
+        super(new File("task.csv"), false, historyManager);
         this.kvTaskClient = new KVClient("http://localhost:8078/");
     }
 
+    /**
+     * Загрузка с KV-сервера. Сначала читаются все ключи: запись во время загрузки затерла бы
+     * еще не прочитанные. Задачи восстанавливаются со своими id без сохранения,
+     * сохранение одно - в конце.
+     */
     public void load() {
-
+        List<Task> loaded = new ArrayList<>();
         String jsonTasks = kvTaskClient.load("task");
-        ArrayList<Task> tasks = gson.fromJson(jsonTasks, new TypeToken<ArrayList<Task>>() {
-        }.getType());
+        String jsonEpics = kvTaskClient.load("epic");
+        String jsonSubTasks = kvTaskClient.load("subtask");
+        String jsonHistory = kvTaskClient.load("history");
         if (!jsonTasks.isEmpty()) {
-            for (Task task : tasks) {
-                addTask(task);
-            }
+            loaded.addAll(gson.<List<Task>>fromJson(jsonTasks, new TypeToken<ArrayList<Task>>() {
+            }.getType()));
         }
-        String jsonEpics = kvTaskClient.load("epic");
-        ArrayList<Epic> epics = gson.fromJson(jsonEpics, new TypeToken<ArrayList<Epic>>() {
-        }.getType());
         if (!jsonEpics.isEmpty()) {
-            for (Epic epic : epics) {
-                addEpic(epic);
-            }
+            loaded.addAll(gson.<List<Epic>>fromJson(jsonEpics, new TypeToken<ArrayList<Epic>>() {
+            }.getType()));
         }
-        String jsonSubTasks = kvTaskClient.load("subtask");
-        ArrayList<SubTask> subTasks = gson.fromJson(jsonSubTasks, new TypeToken<ArrayList<SubTask>>() {
-        }.getType());
         if (!jsonSubTasks.isEmpty()) {
-            for (SubTask subTask : subTasks) {
-                addSubTask(subTask);
+            loaded.addAll(gson.<List<SubTask>>fromJson(jsonSubTasks, new TypeToken<ArrayList<SubTask>>() {
+            }.getType()));
+        }
+        int maxId = id;
+        Map<Integer, List<Integer>> blockedBy = new LinkedHashMap<>();
+        for (Task task : loaded) {
+            if (!task.getBlockedBy().isEmpty()) {
+                blockedBy.put(task.getId(), task.getBlockedBy());
             }
+            restoreTask(task);
+            maxId = Math.max(maxId, task.getId());
         }
-        String jsonHistory = kvTaskClient.load("history");
+        // ребра ставятся, когда загружены обе задачи
+        restoreDependencies(blockedBy);
         if (!jsonHistory.isEmpty()) {
-            ArrayList<String> history = gson.fromJson(jsonHistory, new TypeToken<ArrayList<String>>() {
+            ArrayList<Integer> history = gson.fromJson(jsonHistory, new TypeToken<ArrayList<Integer>>() {
             }.getType());
-            for (int i = history.size() - 1; i >= 0; i--) {
-                getTask(Integer.parseInt(history.get(i)));
+            for (int historyId : history) {
+                Task task = store.get(historyId);
+                if (task != null) {
+                    inMemoryHistoryManager.add(task);
+                }
             }
         }
+        id = maxId;
+        save();
     }
 
     @Override
     void save() {
-        String jsonTasks = gson.toJson(tasks.entrySet());
+        String jsonTasks = gson.toJson(store.values(TaskTypes.TASK));
         kvTaskClient.put("task", jsonTasks);
-        String jsonEpics = gson.toJson(epics.entrySet());
+        String jsonEpics = gson.toJson(store.values(TaskTypes.EPIC));
         kvTaskClient.put("epic", jsonEpics);
-        String jsonSubtasks = gson.toJson(subTasks.entrySet());
+        String jsonSubtasks = gson.toJson(store.values(TaskTypes.SUBTASK));
         kvTaskClient.put("subtask", jsonSubtasks);
-        String jsonHistory = gson.toJson(inMemoryHistoryManager.getHistory());
+        List<Integer> historyIds = new ArrayList<>();
+        for (Task task : inMemoryHistoryManager.getHistory()) {
+            historyIds.add(task.getId());
+        }
+        String jsonHistory = gson.toJson(historyIds);
         kvTaskClient.put("history", jsonHistory);
     }
 }
\ No newline at end of file
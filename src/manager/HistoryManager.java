@@ -10,7 +10,7 @@ import java.util.List;
 public interface HistoryManager {
 
     /**
-     * Получить историю
+     * Получить историю. Список неизменяем и не меняется вместе с историей
      */
     List<Task> getHistory();
 
@@ -25,4 +25,9 @@ public interface HistoryManager {
      * запись из истории
      */
     void remove(int id);
+
+    /**
+     * Очистить историю
+     */
+    void clear();
 }
\ No newline at end of file
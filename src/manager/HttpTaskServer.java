@@ -2,6 +2,7 @@ package manager;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpServer;
 
 import model.Epic;
@@ -9,6 +10,7 @@ import model.Task;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
 import java.time.Duration;
 import java.time.LocalDateTime;
 
@@ -19,10 +21,17 @@ import model.*;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 
 import java.nio.charset.StandardCharsets;
 
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * HTTP
@@ -31,11 +40,20 @@ import java.util.List;
 
 public class HttpTaskServer {
     private final int PORT = 8080;
+    private final int DEFAULT_PAGE_SIZE = 100;
+    private final String CLIENT_HEADER = "X-Client-Id";
     private final HTTPTaskManager taskManager;
+    private final ClientHistories clientHistories = new ClientHistories();
+    private final TaskEventListener historyCleaner = event -> {
+        if (event.getKind() == TaskEvent.Kind.REMOVED) {
+            clientHistories.remove(event.getId());
+        }
+    };
     private HttpServer httpServer;
     private final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapterFactory(new TaskAdapterFactory())
             .create();
 
     public HttpTaskServer(HTTPTaskManager taskManager) {
@@ -47,6 +65,10 @@ public class HttpTaskServer {
             httpServer.createContext("/tasks/epic", new EpicsHandler());
             httpServer.createContext("/tasks/subtask", new SubtasksHandler());
             httpServer.createContext("/tasks/history", new HistoryHandler());
+            httpServer.createContext("/tasks/slot", new SlotHandler());
+            httpServer.createContext("/tasks/search", new SearchHandler());
+            httpServer.createContext("/tasks/stats", new StatsHandler());
+            httpServer.createContext("/tasks/top", new TopViewedHandler());
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -70,7 +92,7 @@ public class HttpTaskServer {
 
             switch (method) {
                 case "GET":
-                    response = getHistory(query);
+                    response = getHistory(query, httpExchange.getRequestHeaders().getFirst(CLIENT_HEADER));
                     responseCode = 200;
                     break;
                 default:
@@ -83,6 +105,112 @@ public class HttpTaskServer {
         }
     }
 
+    public class SlotHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange httpExchange) throws IOException {
+            System.out.println("Обрабатываю /tasks/slot запрос.");
+            int responseCode = 0;
+            String response = "";
+            String method = httpExchange.getRequestMethod();
+            String query = httpExchange.getRequestURI().getQuery();
+
+            if (method.equals("GET")) {
+                try {
+                    response = findFreeSlot(query);
+                    responseCode = 200;
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    response = "Ошибка! " + e.getMessage();
+                    responseCode = 400;
+                }
+            } else {
+                System.out.println("Нет возможности обработать такой метод для /tasks/slot");
+                responseCode = 501;
+            }
+            httpExchange.sendResponseHeaders(responseCode, 0);
+            try (OutputStream os = httpExchange.getResponseBody()) {
+                os.write(response.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    public class SearchHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange httpExchange) throws IOException {
+            System.out.println("Обрабатываю /tasks/search запрос.");
+            int responseCode = 0;
+            String response = "";
+            String method = httpExchange.getRequestMethod();
+            String query = httpExchange.getRequestURI().getRawQuery();
+
+            if (method.equals("GET")) {
+                try {
+                    response = search(query);
+                    responseCode = 200;
+                } catch (IllegalArgumentException e) {
+                    response = "Ошибка! " + e.getMessage();
+                    responseCode = 400;
+                }
+            } else {
+                System.out.println("Нет возможности обработать такой метод для /tasks/search");
+                responseCode = 501;
+            }
+            httpExchange.sendResponseHeaders(responseCode, 0);
+            try (OutputStream os = httpExchange.getResponseBody()) {
+                os.write(response.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    public class StatsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange httpExchange) throws IOException {
+            System.out.println("Обрабатываю /tasks/stats запрос.");
+            int responseCode = 0;
+            String response = "";
+            String method = httpExchange.getRequestMethod();
+
+            if (method.equals("GET")) {
+                response = getStats();
+                responseCode = 200;
+            } else {
+                System.out.println("Нет возможности обработать такой метод для /tasks/stats");
+                responseCode = 501;
+            }
+            httpExchange.sendResponseHeaders(responseCode, 0);
+            try (OutputStream os = httpExchange.getResponseBody()) {
+                os.write(response.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    public class TopViewedHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange httpExchange) throws IOException {
+            System.out.println("Обрабатываю /tasks/top запрос.");
+            int responseCode = 0;
+            String response = "";
+            String method = httpExchange.getRequestMethod();
+            String query = httpExchange.getRequestURI().getQuery();
+
+            if (method.equals("GET")) {
+                try {
+                    response = getTopViewed(query);
+                    responseCode = 200;
+                } catch (IllegalArgumentException e) {
+                    response = "Ошибка! " + e.getMessage();
+                    responseCode = 400;
+                }
+            } else {
+                System.out.println("Нет возможности обработать такой метод для /tasks/top");
+                responseCode = 501;
+            }
+            httpExchange.sendResponseHeaders(responseCode, 0);
+            try (OutputStream os = httpExchange.getResponseBody()) {
+                os.write(response.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
     public class AllTasksHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange httpExchange) throws IOException {
@@ -122,7 +250,11 @@ public class HttpTaskServer {
 
             switch (method) {
                 case "GET":
-                    response = getTask(query);
+                    if (isListQuery(query)) {
+                        sendTaskList(httpExchange, TaskTypes.TASK, query);
+                        return;
+                    }
+                    response = getTask(query, httpExchange.getRequestHeaders().getFirst(CLIENT_HEADER));
                     responseCode = 200;
                     break;
                 case "POST":
@@ -131,7 +263,7 @@ public class HttpTaskServer {
                     responseCode = 201;
                     break;
                 case "DELETE":
-                    responseCode = deleteTask(query);
+                    responseCode = deleteTask(path, query);
                     break;
                 default:
                     response = "Ошибка! Нет обработчика для данного метода.";
@@ -162,7 +294,11 @@ public class HttpTaskServer {
 
             switch (method) {
                 case "GET":
-                    response = getEpic(query);
+                    if (isListQuery(query)) {
+                        sendTaskList(httpExchange, TaskTypes.EPIC, query);
+                        return;
+                    }
+                    response = getEpic(query, httpExchange.getRequestHeaders().getFirst(CLIENT_HEADER));
                     responseCode = 200;
                     break;
                 case "POST":
@@ -171,7 +307,7 @@ public class HttpTaskServer {
                     responseCode = 201;
                     break;
                 case "DELETE":
-                    responseCode = deleteEpic(query);
+                    responseCode = deleteEpic(path, query);
                     break;
                 default:
                     response = "Ошибка. Нет обработчика для данного метода!";
@@ -203,7 +339,11 @@ public class HttpTaskServer {
             System.out.println("SUBTASK: ");
             switch (method) {
                 case "GET":
-                    response = getSubtask(query);
+                    if (isListQuery(query)) {
+                        sendTaskList(httpExchange, TaskTypes.SUBTASK, query);
+                        return;
+                    }
+                    response = getSubtask(query, httpExchange.getRequestHeaders().getFirst(CLIENT_HEADER));
                     responseCode = 200;
                     break;
                 case "POST":
@@ -212,7 +352,7 @@ public class HttpTaskServer {
                     responseCode = 201;
                     break;
                 case "DELETE":
-                    responseCode = deleteSubtask(query);
+                    responseCode = deleteSubtask(path, query);
                     break;
                 default:
                     response = "Ошибка. Нет обработчика для данного метода!";
@@ -267,63 +407,208 @@ public class HttpTaskServer {
         }
     }
 
-    public String getTask(String query) {
-        if (query != null) {
-            Integer id = extractIdFromQuery(query);
-            return gson.toJson(taskManager.getTask(id));
+    /**
+     * Задача по id из запроса. Запрос без id сюда не доходит: список отдает sendTaskList.
+     */
+    public String getTask(String query, String clientId) {
+        Integer id = extractIdFromQuery(query);
+        return gson.toJson(recordView(clientId, taskManager.getTask(id)));
+    }
+
+    public String getEpic(String query, String clientId) {
+        Integer id = extractIdFromQuery(query);
+        return gson.toJson(recordView(clientId, taskManager.getEpic(id)));
+    }
 
+    public String getSubtask(String query, String clientId) {
+        Integer id = extractIdFromQuery(query);
+        return gson.toJson(recordView(clientId, taskManager.getSubTask(id)));
+    }
+
+    /**
+     * История клиента из заголовка X-Client-Id, без заголовка - общая история менеджера.
+     */
+    public String getHistory(String query, String clientId) {
+        if (clientId != null) {
+            return gson.toJson(clientHistories.getHistory(clientId));
         }
-        return gson.toJson(taskManager.getAllTasks());
+        return gson.toJson(taskManager.getHistory());
     }
 
-    public String getEpic(String query) {
-        if (query != null) {
-            Integer id = extractIdFromQuery(query);
-            return gson.toJson(taskManager.getEpic(id));
+    /**
+     * Свободное время для задачи: ?duration=минуты&from=2022-08-06T12:00 (from необязателен).
+     */
+    public String findFreeSlot(String query) {
+        Map<String, String> params = parseQuery(query);
+        if (!params.containsKey("duration")) {
+            throw new IllegalArgumentException("Не указан параметр duration");
         }
-        return gson.toJson(taskManager.getAllEpics());
+        int duration = Integer.parseInt(params.get("duration"));
+        LocalDateTime notBefore = params.containsKey("from")
+                ? LocalDateTime.parse(params.get("from"))
+                : LocalDateTime.now();
+        return gson.toJson(taskManager.findFreeSlot(duration, notBefore));
     }
 
-    public String getSubtask(String query) {
-        if (query != null) {
-            Integer id = extractIdFromQuery(query);
-            return gson.toJson(taskManager.getSubTask(id));
+    /**
+     * Поиск по словам: ?q=слова (закодированный запрос).
+     */
+    public String search(String rawQuery) {
+        String text = parseQuery(rawQuery).getOrDefault("q", "");
+        return gson.toJson(taskManager.search(URLDecoder.decode(text, StandardCharsets.UTF_8)));
+    }
 
-        }
-        return gson.toJson(taskManager.getAllSubTasks());
+    /**
+     * Агрегаты доски: количество по статусам, занятые минуты по дням, доля выполнения эпиков.
+     */
+    public String getStats() {
+        TaskAnalytics analytics = taskManager.getAnalytics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("version", analytics.getVersion());
+        stats.put("byStatus", analytics.countByStatus());
+        stats.put("minutesPerDay", analytics.scheduledMinutesPerDay());
+        stats.put("epicCompletion", analytics.epicCompletion());
+        return gson.toJson(stats);
     }
 
-    public String getHistory(String query) {
-        return gson.toJson(taskManager.getHistory());
+    /**
+     * Самые просматриваемые задачи за последнее время: ?limit=число (по умолчанию 10).
+     */
+    public String getTopViewed(String query) {
+        int limit = Integer.parseInt(parseQuery(query).getOrDefault("limit", "10"));
+        List<Map<String, Integer>> top = new ArrayList<>();
+        taskManager.getTopViewed(limit).forEach((id, views) -> {
+            Map<String, Integer> entry = new LinkedHashMap<>();
+            entry.put("id", id);
+            entry.put("views", views);
+            top.add(entry);
+        });
+        return gson.toJson(top);
     }
 
-    public int deleteTask(String query) {
+    public int deleteTask(String[] path, String query) {
         if (query != null) {
             Integer id = extractIdFromQuery(query);
             taskManager.removeTask(id);
+            clientHistories.remove(id);
             return 204;
         }
-        return 404;
+        if (!isClearPath(path)) {
+            return 404;
+        }
+        List<Task> tasks = taskManager.getAllTasks();
+        taskManager.clearTasks();
+        forgetViews(tasks);
+        return 204;
     }
 
-    public int deleteEpic(String query) {
+    public int deleteEpic(String[] path, String query) {
         if (query != null) {
             Integer id = extractIdFromQuery(query);
+            List<Task> removed = new ArrayList<>(taskManager.getSubTasksByEpic(id));
             taskManager.removeEpic(id);
+            forgetViews(removed);
+            clientHistories.remove(id);
             return 204;
         }
-
-        return 404;
+        if (!isClearPath(path)) {
+            return 404;
+        }
+        List<Task> removed = new ArrayList<>(taskManager.getAllEpics());
+        removed.addAll(taskManager.getAllSubTasks());
+        taskManager.clearEpics();
+        forgetViews(removed);
+        return 204;
     }
 
-    public int deleteSubtask(String query) {
+    public int deleteSubtask(String[] path, String query) {
         if (query != null) {
             Integer id = extractIdFromQuery(query);
             taskManager.removeSubTask(id);
+            clientHistories.remove(id);
             return 204;
 
         }
-        return 404;
+        if (!isClearPath(path)) {
+            return 404;
+        }
+        List<Task> subTasks = new ArrayList<>(taskManager.getAllSubTasks());
+        taskManager.clearSubTasks();
+        forgetViews(subTasks);
+        return 204;
+    }
+
+    /**
+     * Системный. Удалить все задачи типа можно только явным путем /tasks/<тип>/all:
+     * DELETE без id - ошибка клиента, а не очистка.
+     */
+    private boolean isClearPath(String[] path) {
+        return path.length == 4 && "all".equals(path[3]);
+    }
+
+    /**
+     * Системный. Для удаления задач из историй клиентов сразу при удалении: событие об удалении
+     * приходит асинхронно, и следующий запрос истории мог бы еще вернуть удаленную задачу.
+     */
+    private void forgetViews(List<Task> removed) {
+        List<Integer> ids = new ArrayList<>(removed.size());
+        for (Task task : removed) {
+            ids.add(task.getId());
+        }
+        clientHistories.removeAll(ids);
+    }
+
+    /**
+     * Список задач типа потоком в тело ответа, без сборки одной строки.
+     * С ?limit=&after= - одна страница, курсор следующей страницы в заголовке X-Next-Cursor.
+     */
+    private void sendTaskList(HttpExchange httpExchange, TaskTypes type, String query) throws IOException {
+        Map<String, String> params = parseQuery(query);
+        Iterator<Task> tasks;
+        try {
+            if (params.containsKey("limit") || params.containsKey("after")) {
+                int limit = Integer.parseInt(params.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+                int after = Integer.parseInt(params.getOrDefault("after", "0"));
+                List<Task> page = taskManager.getPage(type, after, limit);
+                if (page.size() == limit) {
+                    httpExchange.getResponseHeaders().add("X-Next-Cursor",
+                            String.valueOf(page.get(page.size() - 1).getId()));
+                }
+                tasks = page.iterator();
+            } else {
+                tasks = taskManager.iterate(type);
+            }
+        } catch (IllegalArgumentException e) {
+            httpExchange.sendResponseHeaders(400, 0);
+            try (OutputStream os = httpExchange.getResponseBody()) {
+                os.write(("Ошибка! " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            }
+            return;
+        }
+        httpExchange.sendResponseHeaders(200, 0);
+        try (JsonWriter writer = new JsonWriter(
+                new OutputStreamWriter(httpExchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            while (tasks.hasNext()) {
+                Task task = tasks.next();
+                gson.toJson(task, task.getClass(), writer);
+            }
+            writer.endArray();
+        }
+    }
+
+    /**
+     * Системный. Для записи просмотра в историю клиента, если клиент указан.
+     */
+    private <T extends Task> T recordView(String clientId, T task) {
+        if (clientId != null && task != null) {
+            clientHistories.add(clientId, task);
+        }
+        return task;
+    }
+
+    private boolean isListQuery(String query) {
+        return !parseQuery(query).containsKey("id");
     }
 
     private Integer extractIdFromQuery(String query) {
@@ -331,12 +616,26 @@ public class HttpTaskServer {
         return Integer.parseInt(split[1]);
     }
 
+    private Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String param : query.split("&")) {
+            String[] keyValue = param.split("=", 2);
+            params.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "");
+        }
+        return params;
+    }
+
     public void start() {
+        taskManager.subscribe(historyCleaner);
         httpServer.start();
         System.out.println("HTTP-сервер запущен на " + PORT + " порту!");
     }
 
     public void stop() {
         httpServer.stop(0);
+        taskManager.unsubscribe(historyCleaner);
     }
 }
\ No newline at end of file
@@ -2,109 +2,288 @@ package manager;
 
 import model.Task;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.RandomAccess;
 
 /**
  * В памяти история.
+ * Размер ограничен: при переполнении вытесняется давно просмотренная задача (LRU, O(1)).
+ * Если задан срок хранения, записи старше него удаляются с головы списка при добавлении и чтении.
+ * Список связан индексами ячеек в массивах, id ищется в хеш-таблице на int без упаковки,
+ * освобожденные ячейки переиспользуются. После заполнения добавление ничего не создает.
  */
 public class InMemoryHistoryManager implements HistoryManager {
-    private Map<Integer, Node<Task>> history = new HashMap<>();
-    private CustomLinkedList<Task> customLinkedList = new CustomLinkedList<>();
+    static final int DEFAULT_CAPACITY = 1000;
+    private static final int INITIAL_SLOTS = 16;
+    private static final int NONE = -1;
 
-    private static class Node<T> {
-        T item;
-        Node<T> next;
-        Node<T> prev;
+    private final int capacity;
+    private final long ttlMillis;
+    private final Clock clock;
 
-        public Node(T item) {
-            this.item = item;
-            this.next = null;
-            this.prev = null;
-        }
-    }
+    private Task[] items;
+    private int[] prev;
+    private int[] next;
+    private long[] viewedAt;
+    private int head = NONE;
+    private int tail = NONE;
+    private int free = NONE;
+    private int used;
+    private int size;
+
+    private int[] keys;
+    private int[] slots;   // ячейка + 1, 0 - пустое место в таблице
+    private int mask;
+
+    private List<Task> view;
 
-    public static class CustomLinkedList<T> {
-        private Node<T> head;
-        private Node<T> tail;
+    /**
+     * Неизменяемый список поверх снимка истории.
+     */
+    private static class HistoryView extends AbstractList<Task> implements RandomAccess {
+        private final Task[] tasks;
 
-        public CustomLinkedList() {
-            this.head = null;
-            this.tail = null;
+        HistoryView(Task[] tasks) {
+            this.tasks = tasks;
         }
 
-        public Node<T> linkLast(T task) {
-            Node<T> newNode = new Node<>(task);
+        @Override
+        public Task get(int index) {
+            return tasks[index];
+        }
 
-            if (head == null) {
-                head = newNode;
-            }
-            if (tail != null) {
-                tail.next = newNode;
-                newNode.prev = tail;
-            }
-            tail = newNode;
-            return newNode;
+        @Override
+        public int size() {
+            return tasks.length;
         }
+    }
 
-        public T removeNode(Node<T> node) {
-            if (node == null) {
-                return null;
-            }
+    public InMemoryHistoryManager() {
+        this(DEFAULT_CAPACITY, null);
+    }
 
-            Node<T> prevNode = node.prev;
-            Node<T> nextNode = node.next;
-
-            if (prevNode != null && nextNode != null) {
-                prevNode.next = nextNode;
-                nextNode.prev = prevNode;
-            } else if (prevNode == null && nextNode != null) {
-                nextNode.prev = null;
-                head = nextNode;
-            } else if (nextNode == null && prevNode != null) {
-                prevNode.next = null;
-                tail = prevNode;
-            }
+    /**
+     * @param capacity наибольшее число задач в истории
+     * @param ttl      срок хранения записи после последнего просмотра, null - без срока
+     */
+    public InMemoryHistoryManager(int capacity, Duration ttl) {
+        this(capacity, ttl, Clock.systemUTC());
+    }
 
-            node.prev = null;
-            node.next = null;
-            return node.item;
+    InMemoryHistoryManager(int capacity, Duration ttl, Clock clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным.");
         }
-
-        public List<T> getTasks() {
-            List<T> list = new LinkedList<>();
-            Node<T> node = head;
-            while (node != null) {
-                list.add(node.item);
-                node = node.next;
-            }
-            return list;
+        if (ttl != null && (ttl.isNegative() || ttl.isZero())) {
+            throw new IllegalArgumentException("Срок хранения истории должен быть положительным.");
         }
+        this.capacity = capacity;
+        this.ttlMillis = ttl == null ? 0 : ttl.toMillis();
+        this.clock = clock;
+        allocate(Math.min(capacity, INITIAL_SLOTS));
     }
 
+    /**
+     * История от давних просмотров к недавним. Список неизменяем и не меняется вместе с историей;
+     * пока история не изменилась, возвращается тот же список.
+     */
     @Override
     public List<Task> getHistory() {
-        return customLinkedList.getTasks();
+        expire(clock.millis());
+        if (view == null) {
+            Task[] tasks = new Task[size];
+            int index = 0;
+            for (int slot = head; slot != NONE; slot = next[slot]) {
+                tasks[index++] = items[slot];
+            }
+            view = new HistoryView(tasks);
+        }
+        return view;
     }
 
     @Override
     public void add(Task T) {
-        if (history.containsKey(T.getId())) {
-            remove(T.getId());
+        long now = clock.millis();
+        expire(now);
+        int slot = find(T.getId());
+        if (slot != NONE) {
+            unlink(slot);
+        } else {
+            if (size == capacity) {
+                removeSlot(head);
+            }
+            slot = takeSlot();
+            insertKey(T.getId(), slot);
+            size++;
         }
-        Node<Task> node = customLinkedList.linkLast(T);
-        history.put(T.getId(), node);
+        items[slot] = T;
+        viewedAt[slot] = now;
+        linkLast(slot);
+        view = null;
     }
 
     @Override
     public void remove(int id) {
-        if (!history.containsKey(id)) {
+        int slot = find(id);
+        if (slot != NONE) {
+            removeSlot(slot);
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(items, 0, used, null);
+        Arrays.fill(slots, 0);
+        head = NONE;
+        tail = NONE;
+        free = NONE;
+        used = 0;
+        size = 0;
+        view = null;
+    }
+
+    /**
+     * Системный. Для удаления записей старше срока хранения: они всегда в начале списка.
+     */
+    private void expire(long now) {
+        if (ttlMillis == 0) {
+            return;
+        }
+        while (head != NONE && now - viewedAt[head] >= ttlMillis) {
+            removeSlot(head);
+        }
+    }
+
+    /**
+     * Системный. Для удаления ячейки из списка и таблицы, ячейка уходит в список свободных.
+     */
+    private void removeSlot(int slot) {
+        deleteKey(items[slot].getId());
+        unlink(slot);
+        items[slot] = null;
+        next[slot] = free;
+        free = slot;
+        size--;
+        view = null;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        if (prev[slot] == NONE) {
+            head = next[slot];
+        } else {
+            next[prev[slot]] = next[slot];
+        }
+        if (next[slot] == NONE) {
+            tail = prev[slot];
+        } else {
+            prev[next[slot]] = prev[slot];
+        }
+    }
+
+    /**
+     * Системный. Для выдачи свободной ячейки, массивы растут вдвое, но не больше capacity.
+     */
+    private int takeSlot() {
+        if (free != NONE) {
+            int slot = free;
+            free = next[slot];
+            return slot;
+        }
+        if (used == items.length) {
+            allocate(Math.min(capacity, items.length * 2));
+        }
+        return used++;
+    }
+
+    private void allocate(int length) {
+        if (items == null) {
+            items = new Task[length];
+            prev = new int[length];
+            next = new int[length];
+            viewedAt = new long[length];
+        } else {
+            items = Arrays.copyOf(items, length);
+            prev = Arrays.copyOf(prev, length);
+            next = Arrays.copyOf(next, length);
+            viewedAt = Arrays.copyOf(viewedAt, length);
+        }
+        int tableSize = Integer.highestOneBit(Math.max(length, 1) * 2 - 1) << 1;
+        if (keys != null && keys.length == tableSize) {
             return;
         }
-        Node<Task> node = history.get(id);
-        customLinkedList.removeNode(node);
-        history.remove(id);
+        int[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new int[tableSize];
+        slots = new int[tableSize];
+        mask = tableSize - 1;
+        if (oldKeys != null) {
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldSlots[i] != 0) {
+                    insertKey(oldKeys[i], oldSlots[i] - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Системный. Для поиска ячейки по id в таблице с линейным пробированием.
+     */
+    private int find(int id) {
+        for (int i = hash(id); slots[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return slots[i] - 1;
+            }
+        }
+        return NONE;
+    }
+
+    private void insertKey(int id, int slot) {
+        int i = hash(id);
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        slots[i] = slot + 1;
+    }
+
+    /**
+     * Системный. Для удаления id из таблицы со сдвигом следующих ключей назад, без меток удаления.
+     */
+    private void deleteKey(int id) {
+        int i = hash(id);
+        while (keys[i] != id || slots[i] == 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = 0;
+        for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+            int home = hash(keys[j]);
+            boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!stays) {
+                keys[i] = keys[j];
+                slots[i] = slots[j];
+                slots[j] = 0;
+                i = j;
+            }
+        }
+    }
+
+    private int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
     }
-}
\ No newline at end of file
+}
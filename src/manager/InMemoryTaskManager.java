@@ -1,12 +1,15 @@
 package manager;
 
 import model.Epic;
+import model.EpochMinutes;
+import model.RecurringTask;
 import model.Status;
 import model.SubTask;
 import model.Task;
+import model.TaskTypes;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.util.*;
 
 /**
@@ -15,237 +18,618 @@ import java.util.*;
  */
 
 public class InMemoryTaskManager implements TaskManager {
-    protected final HashMap<Integer, SubTask> subTasks = new HashMap<>();
-    protected final HashMap<Integer, Epic> epics = new HashMap<>();
-    protected final HashMap<Integer, Task> tasks = new HashMap<>();
-    protected final HistoryManager inMemoryHistoryManager = Managers.getDefaultHistory();
+    protected final TaskStore store;
+    protected final HistoryManager inMemoryHistoryManager;
     protected int id = 0;
-    private final Set<Task> prioritizedTasks = new TreeSet<>((task1, task2) -> {
+    private final TaskIntervalTree schedule = new TaskIntervalTree();
+    private final Set<Integer> unscheduledTasks = new TreeSet<>();
+    private final Set<Task> prioritizedTasks = new PrioritizedTasks();
+    private final Map<Integer, EpicRollup> epicRollups = new HashMap<>();
+    private final StatusIndex statusIndex = new StatusIndex();
+    private final TaskEventBus events = new TaskEventBus();
+    private final DependencyGraph dependencies = new DependencyGraph();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final DailyWorkload workload = new DailyWorkload();
+    private final RecurringSchedule recurring = new RecurringSchedule();
+    private final AccessStatistics accessStatistics = new AccessStatistics();
+    private int dailyCapacity = 0;
+    private long version = 0;
+    private boolean publishing;
+    private PersistentTaskList<Task> publishedTasks = PersistentTaskList.empty();
+    private PersistentTaskList<Epic> publishedEpics = PersistentTaskList.empty();
+    private PersistentTaskList<SubTask> publishedSubTasks = PersistentTaskList.empty();
+    private PersistentTaskSet publishedPrioritized = PersistentTaskSet.EMPTY;
+    private boolean snapshotStale = true;
+    private volatile TaskSnapshot snapshot;
 
-        if ((task1.getStartTime() != null) && (task2.getStartTime() != null)) {
-            return task1.getStartTime().compareTo(task2.getStartTime());
-        } else if (task1.getStartTime() == null) {
-            return 1;
-        } else if (null == task2.getStartTime()) {
-            return -1;
-        } else {
-            return 0;
-        }
+    public InMemoryTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    /**
+     * Менеджер с заданной историей, например ограниченной Managers.getDefaultHistory(capacity, ttl).
+     */
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this(historyManager, new ArrayTaskStore());
+    }
 
-    });
+    InMemoryTaskManager(HistoryManager historyManager, TaskStore store) {
+        this.inMemoryHistoryManager = historyManager;
+        this.store = store;
+    }
 
 
     @Override
     public ArrayList<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values());
+        return store.values(TaskTypes.TASK);
     }
 
     @Override
     public ArrayList<Epic> getAllEpics() {
-        return new ArrayList<>(epics.values());
+        return store.values(TaskTypes.EPIC);
     }
 
     @Override
     public ArrayList<SubTask> getAllSubTasks() {
-        return new ArrayList<>(subTasks.values());
+        return store.values(TaskTypes.SUBTASK);
     }
 
     @Override
     public ArrayList<SubTask> getSubTasksByEpic(int epicId) {
-        HashMap<Integer, SubTask> subTasksByEpic = new HashMap<>();
-
-        try {
-            for (int idSubTask : epics.get(epicId).getSubTasks()) {
-                subTasksByEpic.put(idSubTask, subTasks.get(idSubTask));
-            }
-        } catch (NullPointerException e) {
-            System.out.println(e.getMessage());
+        Epic epic = store.get(epicId, TaskTypes.EPIC);
+        if (epic == null) {
             System.out.println("Невозможно получить подзадачи. Эпика не существует, либо подзадач нет.");
+            return new ArrayList<>();
         }
+        int[] subTaskIds = epic.getSubTaskIds();
+        ArrayList<SubTask> subTasksByEpic = new ArrayList<>(subTaskIds.length);
+        for (int idSubTask : subTaskIds) {
+            subTasksByEpic.add(store.get(idSubTask, TaskTypes.SUBTASK));
+        }
+        return subTasksByEpic;
+    }
 
-        return new ArrayList<>(subTasksByEpic.values());
+    @Override
+    public List<Task> getPage(TaskTypes type, int afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть больше нуля");
+        }
+        return store.values(type, afterId, limit);
+    }
+
+    @Override
+    public Iterator<Task> iterate(TaskTypes type) {
+        return store.iterator(type);
     }
 
     @Override
     public Task getTask(int id) {
-        if (tasks.containsKey(id)) {
-            final Task task = tasks.get(id);
-            inMemoryHistoryManager.add(task);
-            return task;
-        } else throw new IllegalArgumentException("Такой задачи нет");
+        final Task task = store.get(id, TaskTypes.TASK);
+        if (task == null) {
+            throw new IllegalArgumentException("Такой задачи нет");
+        }
+        recordView(task);
+        return task;
     }
 
     @Override
     public SubTask getSubTask(int id) {
-        if (subTasks.containsKey(id)) {
-            final SubTask subTask = subTasks.get(id);
-            inMemoryHistoryManager.add(subTask);
-            return subTask;
-        } else throw new IllegalArgumentException("Такой подзадачи нет");
+        final SubTask subTask = store.get(id, TaskTypes.SUBTASK);
+        if (subTask == null) {
+            throw new IllegalArgumentException("Такой подзадачи нет");
+        }
+        recordView(subTask);
+        return subTask;
     }
 
     @Override
     public Epic getEpic(int id) {
-        if (epics.containsKey(id)) {
-            final Epic epic = epics.get(id);
-            inMemoryHistoryManager.add(epic);
-            return epic;
-        } else throw new IllegalArgumentException("Такого эпика нет");
+        final Epic epic = store.get(id, TaskTypes.EPIC);
+        if (epic == null) {
+            throw new IllegalArgumentException("Такого эпика нет");
+        }
+        recordView(epic);
+        return epic;
+    }
+
+    /**
+     * Системный. Для записи просмотра задачи в историю и статистику.
+     */
+    protected final void recordView(Task task) {
+        inMemoryHistoryManager.add(task);
+        accessStatistics.record(task.getId());
+    }
+
+    /**
+     * Системный. Для отмены просмотра задачи, которую удалили раньше, чем просмотр записался.
+     */
+    protected final void forgetView(int id) {
+        inMemoryHistoryManager.remove(id);
+        accessStatistics.remove(id);
     }
 
     @Override
     public Object addTask(Task task) {
-        task.setId(++id);
+        task.setId(generateId());
         findCrossTimeIntersection(task);
-        tasks.put(task.getId(), task);
-        prioritizedTasks.addAll(tasks.values());
+        indexTask(task, store.put(task));
         return null;
     }
 
     @Override
     public Object addSubTask(SubTask subTask) {
-        try {
-            subTask.setId(++id);
-            findCrossTimeIntersection(subTask);
-            subTasks.put(subTask.getId(), subTask);
-            addSubTaskToEpic(epics.get(subTask.getEpicId()), subTask.getId());
-            epicStatusChanger(epics.get(subTask.getEpicId()));
-        } catch (NullPointerException e) {
-            System.out.println(e.getMessage());
-            System.out.println("Невозможно добавить подзадачу.");
-        }
-        prioritizedTasks.addAll(subTasks.values());
-
+        subTask.setId(generateId());
+        findCrossTimeIntersection(subTask);
+        indexTask(subTask, store.put(subTask));
+        addSubTaskToEpic(subTask);
         return null;
     }
 
-
-    private void addSubTaskToEpic(Epic epic, int idSubTask) {
-        try {
-            if (epic != null) {
-                ArrayList<Integer> idSubTasks = epic.getSubTasks();
-                idSubTasks.add(idSubTask);
-
-                epic.setSubTasks(idSubTasks);
-                epic.setStartTime(calculateEpicStartTime(epic));
-                epic.setDuration(calculateEpicDuration(epic));
-                epic.setFinishTime(calculateEpicFinishTime(epic));
-            }
-        } catch (NullPointerException e) {
-            System.out.println(e.getMessage());
-            System.out.println("Невозможно добавить  подзадачу. Эпика не существует");
-        }
-        prioritizedTasks.addAll(subTasks.values());
-    }
-
-
     @Override
     public Object addEpic(Epic epic) {
-        epic.setId(++id);
-        epics.put(epic.getId(), epic);
-        epicStatusChanger(epic);
+        epic.setId(generateId());
+        // подзадачи эпик получает только через addSubTask, присланный список не в счет
+        epic.clearSubTasks();
+        store.put(epic);
+        epicRollups.put(epic.getId(), new EpicRollup());
+        applyRollup(epic, null);
         return null;
     }
 
     @Override
     public void updateTask(Task task) {
-        try {
-            findCrossTimeIntersection(task);
-            tasks.put(task.getId(), task);
-        } catch (NullPointerException e) {
-            System.out.println(e.getMessage());
-            System.out.println("Невозможно обновить задачу, такой задачи нет");
-        }
-        prioritizedTasks.addAll(tasks.values());
+        checkSlotType(task.getId(), TaskTypes.TASK, "Невозможно обновить задачу, такой задачи нет");
+        findCrossTimeIntersection(task);
+        indexTask(task, store.put(task));
     }
 
     @Override
     public void updateSubTask(SubTask subTask) {
-        try {
-            findCrossTimeIntersection(subTask);
-            subTasks.put(subTask.getId(), subTask);
-            epicStatusChanger(epics.get(subTask.getEpicId()));
-            Epic epic = epics.get(SubTask.getEpicId());
-            epic.setStartTime(calculateEpicStartTime(epic));
-            epic.setDuration(calculateEpicDuration(epic));
-            epic.setFinishTime(calculateEpicFinishTime(epic));
-        } catch (NullPointerException e) {
-            System.out.println(e.getMessage());
-            System.out.println("Невозможно обновить подзадачу, такой подзадачи нет");
+        checkSlotType(subTask.getId(), TaskTypes.SUBTASK, "Невозможно обновить подзадачу, такой подзадачи нет");
+        findCrossTimeIntersection(subTask);
+        SubTask oldSubTask = store.get(subTask.getId(), TaskTypes.SUBTASK);
+        indexTask(subTask, store.put(subTask));
+        if (oldSubTask != null && oldSubTask.getEpicId() == subTask.getEpicId()
+                && epicRollups.containsKey(subTask.getEpicId())) {
+            Epic epic = store.get(subTask.getEpicId(), TaskTypes.EPIC);
+            Epic before = copyForEvents(epic);
+            epicRollups.get(subTask.getEpicId()).put(subTask);
+            applyRollup(epic, before);
+            return;
+        }
+        if (oldSubTask != null) {
+            removeSubTaskFromEpic(oldSubTask);
         }
-        prioritizedTasks.addAll(subTasks.values());
+        addSubTaskToEpic(subTask);
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        try {
-            epic.setSubTasks(epics.get(epic.getId()).getSubTasks());
-            epic.setStatus(epics.get(epic.getId()).getStatus());
-            epics.put(epic.getId(), epic);
-        } catch (NullPointerException e) {
-            System.out.println(e.getMessage());
+        Epic oldEpic = store.get(epic.getId(), TaskTypes.EPIC);
+        if (oldEpic == null) {
             System.out.println("Невозможно обновить эпик, такого эпика нет");
+            return;
         }
-
+        epic.setSubTasks(oldEpic.getSubTaskIds());
+        store.put(epic);
+        searchIndex.replace(epic.getId(), searchText(oldEpic), searchText(epic));
+        applyRollup(epic, oldEpic);
     }
 
     @Override
     public void removeTask(int id) {
-        try {
-            inMemoryHistoryManager.remove(id);
-            tasks.remove(id);
-        } catch (NullPointerException e) {
-            System.out.println(e.getMessage());
+        if (store.typeOf(id) != TaskTypes.TASK) {
             System.out.println("Невозможно удалить задачу. Такой задачи нет");
+            return;
         }
-        prioritizedTasks.addAll(tasks.values());
+        inMemoryHistoryManager.remove(id);
+        unindexTask(store.remove(id));
     }
 
     @Override
     public void removeSubTask(int id) {
-        try {
-            int checkEpicId = getSubTask(id).getEpicId();
-            int sizeOfSubTasks = (getSubTasksByEpic(checkEpicId).size());
-            if ((sizeOfSubTasks - 1) <= 0) {
-                inMemoryHistoryManager.remove(id);
-                subTasks.remove(id);
-                Epic epic = getEpic(checkEpicId);
-                epicStatusChanger(epic);
-                epic.setStartTime(calculateEpicStartTime(epic));
-                epic.setDuration(calculateEpicDuration(epic));
-                epic.setFinishTime(calculateEpicFinishTime(epic));
-                ArrayList<Integer> subTasks;
-                subTasks = new ArrayList<>();
-                getEpic(checkEpicId).setSubTasks(subTasks);
-            }
-        } catch (NullPointerException e) {
-            System.out.println(e.getMessage());
+        SubTask subTask = store.get(id, TaskTypes.SUBTASK);
+        if (subTask == null) {
             System.out.println("Невозможно удалить подзадачу. Такой подзадачи нет.");
+            return;
         }
-        prioritizedTasks.addAll(subTasks.values());
+        inMemoryHistoryManager.remove(id);
+        unindexTask(store.remove(id));
+        removeSubTaskFromEpic(subTask);
     }
 
-
     @Override
     public void removeEpic(int id) {
-        try {
-            if (epics.containsKey(id)) {
-                if (epics.get(id).getSubTasks().size() > 0) {
-                    for (int subTaskId : epics.get(id).getSubTasks()) {
-                        inMemoryHistoryManager.remove(subTaskId);
-                        subTasks.remove(subTaskId);
+        Epic epic = store.get(id, TaskTypes.EPIC);
+        if (epic == null) {
+            System.out.println("Невозможно удалить эпик. Такого эпика нет.");
+            return;
+        }
+        deleteEpic(epic);
+    }
+
+    /**
+     * Системный. Для удаления эпика вместе с подзадачами. Не вызывает переопределяемых методов:
+     * наследник может держать неповторную блокировку.
+     */
+    private void deleteEpic(Epic epic) {
+        int id = epic.getId();
+        for (int subTaskId : epic.getSubTaskIds()) {
+            inMemoryHistoryManager.remove(subTaskId);
+            unindexTask(store.remove(subTaskId));
+        }
+        inMemoryHistoryManager.remove(id);
+        unindexTask(store.remove(id));
+        epicRollups.remove(id);
+    }
+
+    @Override
+    public void clearTasks() {
+        clearType(TaskTypes.TASK);
+    }
+
+    @Override
+    public void clearEpics() {
+        clearType(TaskTypes.SUBTASK);
+        clearType(TaskTypes.EPIC);
+        epicRollups.clear();
+    }
+
+    @Override
+    public void clearSubTasks() {
+        clearType(TaskTypes.SUBTASK);
+        for (Epic epic : store.<Epic>values(TaskTypes.EPIC)) {
+            Epic before = copyForEvents(epic);
+            epic.clearSubTasks();
+            epicRollups.put(epic.getId(), new EpicRollup());
+            applyRollup(epic, before);
+        }
+    }
+
+    @Override
+    public List<Integer> addAll(Task... tasks) {
+        checkBatchIntersections(tasks, false);
+        List<Integer> ids = new ArrayList<>(tasks.length);
+        Map<Integer, EpicChange> touchedEpics = new LinkedHashMap<>();
+        for (Task task : tasks) {
+            task.setId(generateId());
+            if (task.getType() == TaskTypes.EPIC) {
+                ((Epic) task).clearSubTasks();
+            }
+            store.put(task);
+            switch (task.getType()) {
+                case EPIC:
+                    epicRollups.put(task.getId(), new EpicRollup());
+                    touchedEpics.put(task.getId(), new EpicChange((Epic) task, null));
+                    break;
+                case SUBTASK:
+                    indexTask(task, null);
+                    linkSubTask((SubTask) task, touchedEpics);
+                    break;
+                default:
+                    indexTask(task, null);
+            }
+            ids.add(task.getId());
+        }
+        applyRollups(touchedEpics);
+        return ids;
+    }
+
+    @Override
+    public void updateAll(Task... tasks) {
+        for (Task task : tasks) {
+            switch (task.getType()) {
+                case TASK:
+                    checkSlotType(task.getId(), TaskTypes.TASK, "Невозможно обновить задачу, такой задачи нет");
+                    break;
+                case SUBTASK:
+                    checkSlotType(task.getId(), TaskTypes.SUBTASK,
+                            "Невозможно обновить подзадачу, такой подзадачи нет");
+                    break;
+                default:
+                    break;
+            }
+        }
+        checkBatchIntersections(tasks, true);
+        Map<Integer, EpicChange> touchedEpics = new LinkedHashMap<>();
+        for (Task task : tasks) {
+            switch (task.getType()) {
+                case EPIC:
+                    EpicChange change = touchedEpics.get(task.getId());
+                    Epic oldEpic = change != null ? change.epic : store.get(task.getId(), TaskTypes.EPIC);
+                    if (oldEpic == null) {
+                        System.out.println("Невозможно обновить эпик, такого эпика нет");
+                        break;
                     }
-                    inMemoryHistoryManager.remove(id);
-                    epics.remove(id);
-                }
+                    ((Epic) task).setSubTasks(oldEpic.getSubTaskIds());
+                    store.put(task);
+                    searchIndex.replace(task.getId(), searchText(oldEpic), searchText(task));
+                    if (change == null) {
+                        touchedEpics.put(task.getId(), new EpicChange((Epic) task, oldEpic));
+                    } else {
+                        change.epic = (Epic) task;
+                    }
+                    break;
+                case SUBTASK:
+                    SubTask subTask = (SubTask) task;
+                    SubTask oldSubTask = store.get(subTask.getId(), TaskTypes.SUBTASK);
+                    indexTask(subTask, store.put(subTask));
+                    if (oldSubTask != null && oldSubTask.getEpicId() != subTask.getEpicId()) {
+                        unlinkSubTask(oldSubTask, touchedEpics);
+                    }
+                    linkSubTask(subTask, touchedEpics);
+                    break;
+                default:
+                    indexTask(task, store.put(task));
+            }
+        }
+        applyRollups(touchedEpics);
+    }
+
+    @Override
+    public void removeAll(int... ids) {
+        Map<Integer, EpicChange> touchedEpics = new LinkedHashMap<>();
+        for (int taskId : ids) {
+            TaskTypes type = store.typeOf(taskId);
+            if (type == null) {
+                continue;
+            }
+            switch (type) {
+                case EPIC:
+                    deleteEpic(store.get(taskId, TaskTypes.EPIC));
+                    break;
+                case SUBTASK:
+                    SubTask subTask = store.get(taskId, TaskTypes.SUBTASK);
+                    inMemoryHistoryManager.remove(taskId);
+                    unindexTask(store.remove(taskId));
+                    unlinkSubTask(subTask, touchedEpics);
+                    break;
+                default:
+                    inMemoryHistoryManager.remove(taskId);
+                    unindexTask(store.remove(taskId));
             }
-        } catch (NullPointerException e) {
-            System.out.println(e.getMessage());
-            System.out.println("Невозможно удалить эпик. Такого эпика нет.");
         }
-        prioritizedTasks.addAll(subTasks.values());
+        applyRollups(touchedEpics);
+    }
+
+    @Override
+    public void addDependency(int taskId, int blockedById) {
+        linkDependency(taskId, blockedById);
+    }
+
+    /**
+     * Системный. Для восстановления зависимостей после загрузки, когда все задачи уже добавлены.
+     * blockedBy - id задачи и id задач, которые ее блокируют.
+     */
+    protected void restoreDependencies(Map<Integer, List<Integer>> blockedBy) {
+        for (Map.Entry<Integer, List<Integer>> entry : blockedBy.entrySet()) {
+            for (int blockedById : entry.getValue()) {
+                linkDependency(entry.getKey(), blockedById);
+            }
+        }
+    }
+
+    /**
+     * Системный. Для добавления ребра без сохранения: наследники сохраняют сами.
+     */
+    private void linkDependency(int taskId, int blockedById) {
+        Task task = findDependencyTask(taskId);
+        findDependencyTask(blockedById);
+        dependencies.addEdge(taskId, blockedById);
+        if (!task.getBlockedBy().contains(blockedById)) {
+            task.getBlockedBy().add(blockedById);
+            store.writeBack(task);
+            publish(task);
+        }
+        markChanged();
+    }
+
+    @Override
+    public void removeDependency(int taskId, int blockedById) {
+        Task task = findDependencyTask(taskId);
+        dependencies.removeEdge(taskId, blockedById);
+        if (task.getBlockedBy().remove(Integer.valueOf(blockedById))) {
+            store.writeBack(task);
+            publish(task);
+        }
+        markChanged();
+    }
+
+    @Override
+    public long getEarliestStart(int taskId) {
+        findDependencyTask(taskId);
+        return dependencies.earliestStart(taskId);
+    }
+
+    @Override
+    public List<Task> getCriticalPath() {
+        List<Integer> path = dependencies.criticalPath();
+        List<Task> result = new ArrayList<>(path.size());
+        for (int taskId : path) {
+            result.add(store.get(taskId));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> search(String query) {
+        List<Integer> ids = searchIndex.search(query);
+        List<Task> result = new ArrayList<>(ids.size());
+        for (int taskId : ids) {
+            result.add(store.get(taskId));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> getByStatus(Status status) {
+        int count = 0;
+        for (TaskTypes type : TaskTypes.values()) {
+            count += statusIndex.count(type, status);
+        }
+        List<Task> result = new ArrayList<>(count);
+        for (TaskTypes type : TaskTypes.values()) {
+            result.addAll(tasksByStatus(type, status));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> getByStatus(TaskTypes type, Status status) {
+        return tasksByStatus(type, status);
+    }
+
+    /**
+     * Системный. Для выборки по статусу без вызова переопределяемых методов:
+     * наследник уже держит блокировку чтения, повторный захват может ждать писателя.
+     */
+    private List<Task> tasksByStatus(TaskTypes type, Status status) {
+        Set<Integer> ids = statusIndex.ids(type, status);
+        List<Task> result = new ArrayList<>(ids.size());
+        for (int taskId : ids) {
+            result.add(store.get(taskId));
+        }
+        return result;
+    }
+
+    @Override
+    public int countByStatus(Status status) {
+        int count = 0;
+        for (TaskTypes type : TaskTypes.values()) {
+            count += statusIndex.count(type, status);
+        }
+        return count;
+    }
+
+    @Override
+    public int countByStatus(TaskTypes type, Status status) {
+        return statusIndex.count(type, status);
+    }
+
+    @Override
+    public Map<Status, List<Task>> getKanbanColumns(TaskTypes type) {
+        Map<Status, List<Task>> columns = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            columns.put(status, tasksByStatus(type, status));
+        }
+        return columns;
+    }
+
+    @Override
+    public List<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        long fromKey = TaskIntervalTree.toKey(from);
+        long toKey = TaskIntervalTree.toKey(to);
+        schedule.forEachStartingBetween(fromKey, toKey, taskId -> result.add(store.get(taskId)));
+        int single = result.size();
+        recurring.forEachStartingBetween(fromKey, toKey, (taskId, index) -> result.add(occurrence(taskId, index)));
+        return sortOccurrences(result, single);
+    }
+
+    @Override
+    public List<Task> getTasksActiveAt(LocalDateTime time) {
+        List<Task> result = new ArrayList<>();
+        long key = TaskIntervalTree.toKey(time);
+        schedule.forEachOverlap(key, key + 1, taskId -> result.add(store.get(taskId)));
+        int single = result.size();
+        recurring.forEachOverlap(key, key + 1, (taskId, index) -> result.add(occurrence(taskId, index)));
+        return sortOccurrences(result, single);
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(int duration, LocalDateTime notBefore) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Продолжительность не может быть отрицательной");
+        }
+        long length = duration * 60L;
+        long candidate = TaskIntervalTree.toKey(notBefore);
+        while (true) {
+            candidate = schedule.findFreeSlot(candidate, length);
+            long blockedUntil = recurring.latestOverlapFinish(candidate, candidate + length);
+            if (blockedUntil == Long.MIN_VALUE) {
+                return TaskIntervalTree.toTime(candidate);
+            }
+            candidate = blockedUntil;
+        }
+    }
+
+    /**
+     * Системный. Повторение задачи с указанным номером, создается на время запроса.
+     */
+    private Task occurrence(int id, int index) {
+        return ((RecurringTask) store.get(id)).getOccurrence(index);
+    }
+
+    /**
+     * Системный. Для слияния повторений с обычными задачами по (начало, id).
+     * Первые single задач уже упорядочены деревом.
+     */
+    private static List<Task> sortOccurrences(List<Task> result, int single) {
+        if (result.size() > single) {
+            result.sort(Comparator.comparingLong(Task::getStartMinute).thenComparingInt(Task::getId));
+        }
+        return result;
+    }
+
+    @Override
+    public void setDailyCapacity(int minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException("Лимит загрузки не может быть отрицательным");
+        }
+        dailyCapacity = minutes;
+    }
+
+    @Override
+    public int getDailyCapacity() {
+        return dailyCapacity;
+    }
+
+    @Override
+    public int getDailyLoad(LocalDate day) {
+        return workload.load(day.toEpochDay());
+    }
+
+    @Override
+    public SortedMap<LocalDate, Integer> getDailyLoads(LocalDate from, LocalDate to) {
+        SortedMap<LocalDate, Integer> loads = new TreeMap<>();
+        if (!to.isBefore(from)) {
+            workload.loads(from.toEpochDay(), to.toEpochDay())
+                    .forEach((day, minutes) -> loads.put(LocalDate.ofEpochDay(day), minutes));
+        }
+        return loads;
+    }
+
+    @Override
+    public void subscribe(TaskEventListener listener) {
+        events.subscribe(listener);
+    }
+
+    @Override
+    public void unsubscribe(TaskEventListener listener) {
+        events.unsubscribe(listener);
+    }
+
+    @Override
+    public TaskSnapshot getSnapshot() {
+        enableSnapshots();
+        publishSnapshot();
+        return publishedSnapshot();
+    }
+
+    @Override
+    public TaskAnalytics getAnalytics() {
+        return new TaskAnalytics(getSnapshot());
+    }
+
+    @Override
+    public Map<Integer, Integer> getTopViewed(int limit) {
+        return accessStatistics.getTopViewed(limit);
     }
 
+    @Override
+    public int getViewEstimate(int id) {
+        return accessStatistics.estimate(id);
+    }
 
     @Override
     public List<Task> getHistory() {
@@ -255,88 +639,281 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
     /**
-     * Системный. Для управления статусами.
+     * Системный. Для включения снимков: копии всех задач собираются один раз, дальше каждая запись
+     * сама обновляет неизменяемые деревья. Пока снимки не нужны, менеджер копий не держит.
      */
-    private void epicStatusChanger(Epic epic) {
-        int counterStatusNew = 0;
-        int counterStatusDone = 0;
-        if (epic.getSubTasks().size() == 0) {
-            epic.setStatus(Status.NEW);
-        } else {
-            for (int subTaskId : epic.getSubTasks()) {
-                if ((subTasks.get(subTaskId).getStatus().equals(Status.NEW))) {
-                    counterStatusNew++;
-                } else if (subTasks.get(subTaskId).getStatus().equals(Status.DONE)) {
-                    counterStatusDone++;
-                }
-                if (epic.getSubTasks().size() == counterStatusNew) {
-                    epic.setStatus(Status.NEW);
-                } else if (epic.getSubTasks().size() == counterStatusDone) {
-                    epic.setStatus(Status.DONE);
-                } else {
-                    epic.setStatus(Status.IN_PROGRESS);
-                }
+    protected final void enableSnapshots() {
+        if (publishing) {
+            return;
+        }
+        publishing = true;
+        for (TaskTypes type : TaskTypes.values()) {
+            for (Task task : store.values(type)) {
+                publish(task);
             }
         }
+        snapshotStale = true;
     }
 
     /**
-     * Системный. Для расчета времени начала эпика.
+     * Системный. Для публикации снимка текущей версии: деревья уже готовы, создается только обертка.
+     * До публикации читатели без блокировки видят прежний снимок, а не null.
      */
-    private LocalDateTime calculateEpicStartTime(Epic epic) {
-        Comparator<SubTask> comparator = new Comparator<SubTask>() {
-            @Override
-            public int compare(SubTask o1, SubTask o2) {
-                return (int) (o1.getStartTime().toInstant(ZoneOffset.UTC).toEpochMilli()
-                        - o2.getStartTime().toInstant(ZoneOffset.UTC).toEpochMilli());
-            }
-        };
-        Set<SubTask> subTasks = new TreeSet<>(comparator);
-        if (epic.getSubTasks().isEmpty()) {
-            return LocalDateTime.now();
-        } else {
-            subTasks.addAll(getSubTasksByEpic(epic.getId()));
-            return ((TreeSet<SubTask>) subTasks).first().getStartTime();
+    protected final void publishSnapshot() {
+        if (publishing && snapshotStale) {
+            snapshot = new TaskSnapshot(version, publishedTasks, publishedEpics, publishedSubTasks,
+                    publishedPrioritized);
+            snapshotStale = false;
         }
     }
 
     /**
-     * Системный. Для расчета времени окончания эпика.
+     * Системный. Последний опубликованный снимок, null до первой публикации.
      */
-    private LocalDateTime calculateEpicFinishTime(Epic epic) {
-        Comparator<SubTask> comparator = new Comparator<SubTask>() {
-            @Override
-            public int compare(SubTask o1, SubTask o2) {
-                return (int) (o1.getStartTime().toInstant(ZoneOffset.UTC).toEpochMilli()
-                        - o2.getStartTime().toInstant(ZoneOffset.UTC).toEpochMilli());
-            }
-        };
-        Set<SubTask> subTasks = new TreeSet<>(comparator);
-        if (epic.getSubTasks().isEmpty()) {
-            return LocalDateTime.now();
-        } else {
-            subTasks.addAll(getSubTasksByEpic(epic.getId()));
-            return ((TreeSet<SubTask>) subTasks).last().getFinishTime();
+    protected final TaskSnapshot publishedSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Системный. Для новой версии: опубликованный снимок устаревает.
+     */
+    private void markChanged() {
+        version++;
+        snapshotStale = true;
+    }
+
+    /**
+     * Системный. Для замены задачи в опубликованных деревьях ее неизменяемой копией.
+     */
+    private void publish(Task task) {
+        if (!publishing) {
+            return;
+        }
+        Task frozen = TaskSnapshot.freeze(task);
+        Task previous;
+        switch (task.getType()) {
+            case EPIC:
+                publishedEpics = publishedEpics.with((Epic) frozen);
+                return;
+            case SUBTASK:
+                previous = publishedSubTasks.find(task.getId());
+                publishedSubTasks = publishedSubTasks.with((SubTask) frozen);
+                break;
+            default:
+                previous = publishedTasks.find(task.getId());
+                publishedTasks = publishedTasks.with(frozen);
+        }
+        if (previous != null) {
+            publishedPrioritized = publishedPrioritized.without(previous);
+        }
+        publishedPrioritized = publishedPrioritized.with(frozen);
+    }
+
+    private void unpublish(Task task) {
+        if (!publishing) {
+            return;
+        }
+        Task previous;
+        switch (task.getType()) {
+            case EPIC:
+                publishedEpics = publishedEpics.without(task.getId());
+                return;
+            case SUBTASK:
+                previous = publishedSubTasks.find(task.getId());
+                publishedSubTasks = publishedSubTasks.without(task.getId());
+                break;
+            default:
+                previous = publishedTasks.find(task.getId());
+                publishedTasks = publishedTasks.without(task.getId());
+        }
+        if (previous != null) {
+            publishedPrioritized = publishedPrioritized.without(previous);
+        }
+    }
+
+    /**
+     * Системный. Для проверки, что зависимость ставится между задачами или подзадачами.
+     */
+    private Task findDependencyTask(int id) {
+        Task task = store.get(id);
+        if (task == null || task.getType() == TaskTypes.EPIC) {
+            throw new IllegalArgumentException("Зависимости возможны только между задачами и подзадачами, "
+                    + "такой задачи нет: " + id);
+        }
+        return task;
+    }
+
+    /**
+     * Системный. Для выдачи идентификаторов.
+     */
+    protected int generateId() {
+        return ++id;
+    }
+
+    /**
+     * Системный. Для проверки, что ячейка с таким id свободна или занята задачей того же типа.
+     */
+    private void checkSlotType(int id, TaskTypes type, String message) {
+        TaskTypes slotType = store.typeOf(id);
+        if (slotType != null && slotType != type) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * Системный. Для восстановления сохраненной задачи вместе с индексами, без проверки пересечений.
+     */
+    protected void restoreTask(Task task) {
+        switch (task.getType()) {
+            case TASK:
+                indexTask(task, store.put(task));
+                break;
+            case EPIC:
+                Epic epic = (Epic) task;
+                epic.clearSubTasks();
+                store.put(epic);
+                epicRollups.put(epic.getId(), new EpicRollup());
+                applyRollup(epic, null);
+                break;
+            case SUBTASK:
+                indexTask(task, store.put(task));
+                addSubTaskToEpic((SubTask) task);
+                break;
         }
     }
 
     /**
-     * Системный. Для расчета продолжительности эпика.
+     * Системный. Для привязки подзадачи к эпику и пересчета эпика.
      */
-    private Integer calculateEpicDuration(Epic epic) {
-        for (Integer subTask : epic.getSubTasks()) {
-            if (subTasks.get(subTask).getStartTime() == null) {
+    private void addSubTaskToEpic(SubTask subTask) {
+        Map<Integer, EpicChange> touchedEpics = new HashMap<>(2);
+        linkSubTask(subTask, touchedEpics);
+        applyRollups(touchedEpics);
+    }
+
+    /**
+     * Системный. Для отвязки подзадачи от эпика и пересчета эпика.
+     */
+    private void removeSubTaskFromEpic(SubTask subTask) {
+        Map<Integer, EpicChange> touchedEpics = new HashMap<>(2);
+        unlinkSubTask(subTask, touchedEpics);
+        applyRollups(touchedEpics);
+    }
+
+    /**
+     * Системный. Для привязки подзадачи к эпику без пересчета.
+     * Эпик меняется в touchedEpics и записывается в хранилище один раз, при пересчете.
+     */
+    private void linkSubTask(SubTask subTask, Map<Integer, EpicChange> touchedEpics) {
+        EpicChange change = touch(subTask.getEpicId(), touchedEpics);
+        if (change == null) {
+            System.out.println("Невозможно добавить  подзадачу. Эпика не существует");
+            return;
+        }
+        EpicRollup rollup = epicRollups.get(subTask.getEpicId());
+        if (!rollup.contains(subTask.getId())) {
+            change.epic.addSubTask(subTask.getId());
+        }
+        rollup.put(subTask);
+    }
+
+    /**
+     * Системный. Для отвязки подзадачи от эпика без пересчета.
+     * Эпик меняется в touchedEpics и записывается в хранилище один раз, при пересчете.
+     */
+    private void unlinkSubTask(SubTask subTask, Map<Integer, EpicChange> touchedEpics) {
+        EpicChange change = touch(subTask.getEpicId(), touchedEpics);
+        if (change == null) {
+            return;
+        }
+        change.epic.removeSubTask(subTask.getId());
+        epicRollups.get(subTask.getEpicId()).remove(subTask.getId());
+    }
+
+    /**
+     * Системный. Для эпика, который меняет пакет: читается из хранилища один раз на пакет,
+     * вместе с копией до первого изменения, если есть подписчики. null, если эпика нет.
+     */
+    private EpicChange touch(int epicId, Map<Integer, EpicChange> touchedEpics) {
+        EpicChange change = touchedEpics.get(epicId);
+        if (change == null) {
+            Epic epic = store.get(epicId, TaskTypes.EPIC);
+            if (epic == null) {
                 return null;
             }
+            change = new EpicChange(epic, copyForEvents(epic));
+            touchedEpics.put(epicId, change);
         }
-        int subTaskDurationSum = 0;
-        if (epic.getSubTasks().isEmpty()) {
-            return subTaskDurationSum;
+        return change;
+    }
+
+    /**
+     * Системный. Для пересчета затронутых эпиков, по одному разу на эпик.
+     * Эпики, удаленные тем же пакетом, пропускаются.
+     */
+    private void applyRollups(Map<Integer, EpicChange> touchedEpics) {
+        for (EpicChange change : touchedEpics.values()) {
+            if (epicRollups.containsKey(change.epic.getId())) {
+                applyRollup(change.epic, change.before);
+            }
         }
-        for (Integer subTask : epic.getSubTasks()) {
-            subTaskDurationSum = subTasks.get(subTask).getDuration() + subTaskDurationSum;
+    }
+
+    /**
+     * Системный. Для удаления всех задач одного типа.
+     * Если других задач не остается, хранилище, индексы и история сбрасываются целиком.
+     */
+    private void clearType(TaskTypes type) {
+        ArrayList<Task> removed = store.values(type);
+        if (removed.isEmpty()) {
+            return;
+        }
+        int total = 0;
+        for (TaskTypes storedType : TaskTypes.values()) {
+            total += store.size(storedType);
+        }
+        if (removed.size() < total) {
+            for (Task task : removed) {
+                inMemoryHistoryManager.remove(task.getId());
+                unindexTask(store.remove(task.getId()));
+            }
+            return;
+        }
+        store.clear();
+        schedule.clear();
+        dependencies.clear();
+        searchIndex.clear();
+        workload.clear();
+        recurring.clear();
+        unscheduledTasks.clear();
+        statusIndex.clear();
+        inMemoryHistoryManager.clear();
+        accessStatistics.clear();
+        publishedTasks = PersistentTaskList.empty();
+        publishedEpics = PersistentTaskList.empty();
+        publishedSubTasks = PersistentTaskList.empty();
+        publishedPrioritized = PersistentTaskSet.EMPTY;
+        markChanged();
+        if (events.hasSubscribers()) {
+            for (Task task : removed) {
+                events.publish(TaskEvent.Kind.REMOVED, TaskSnapshot.freeze(task), null);
+            }
         }
-        return subTaskDurationSum;
+    }
+
+    /**
+     * Системный. Копия эпика для события до изменения, null если подписчиков нет.
+     */
+    private Epic copyForEvents(Epic epic) {
+        return events.hasSubscribers() ? TaskSnapshot.copy(epic) : null;
+    }
+
+    /**
+     * Системный. Для пересчета эпика по агрегатам его подзадач.
+     */
+    private void applyRollup(Epic epic, Task before) {
+        epicRollups.get(epic.getId()).applyTo(epic);
+        indexTask(epic, before);
     }
 
     /**
@@ -349,23 +926,310 @@ public class InMemoryTaskManager implements TaskManager {
 
     /**
      * Системный. Для нахождения пересечений.
+     * Повторяющаяся задача проверяется по каждому своему повторению.
      */
     private void findCrossTimeIntersection(Task newTask) {
-        LocalDateTime endTimeOfNewTask = newTask.getStartTime().plusMinutes(newTask.getDuration());
-        for (Task task : prioritizedTasks) {
-            if (!task.getClass().getName().equals(epics)) {
-                LocalDateTime endTimeOfTask = task.getStartTime().plusMinutes(task.getDuration());
-                if (newTask.getStartTime().isAfter(task.getStartTime())
-                        && newTask.getStartTime().isBefore(endTimeOfTask)) {
-                    throw new IllegalArgumentException("Ошибка! задача " + newTask.getName() +
-                            " пересекается по времени" + " с " + task.getName());
+        checkRecurrence(newTask);
+        if (newTask.getStartMinute() == EpochMinutes.NONE) {
+            return;
+        }
+        List<Task> occurrences = expand(newTask);
+        for (Task occurrence : occurrences) {
+            long start = occurrence.getStartMinute() * 60L;
+            long finish = occurrence.getFinishMinute() * 60L;
+            int crossId = schedule.findOverlap(start, finish, newTask.getId());
+            if (crossId == TaskIntervalTree.NOT_FOUND) {
+                crossId = recurring.findOverlap(start, finish, id -> id == newTask.getId());
+            }
+            if (crossId != TaskIntervalTree.NOT_FOUND) {
+                Task task = findScheduledTask(crossId);
+                throw new IllegalArgumentException("Ошибка! задача " + newTask.getName() +
+                        " пересекается по времени" + " с " + task.getName());
+            }
+        }
+        if (dailyCapacity > 0) {
+            checkBatchCapacity(occurrences, Set.of(newTask.getId()));
+        }
+    }
+
+    /**
+     * Системный. Для проверки правила повторения: есть начало, хотя бы одно повторение,
+     * повторения одной задачи не пересекаются друг с другом.
+     */
+    private static void checkRecurrence(Task task) {
+        if (!(task instanceof RecurringTask)) {
+            return;
+        }
+        RecurringTask series = (RecurringTask) task;
+        if (series.getStartMinute() == EpochMinutes.NONE) {
+            throw new IllegalArgumentException("У повторяющейся задачи должно быть время начала");
+        }
+        if (series.getCount() < 1 || series.getPeriod() < 1 || series.getPeriod() < series.getDuration()) {
+            throw new IllegalArgumentException("Некорректное правило повторения: период " + series.getPeriod()
+                    + " мин., повторений " + series.getCount());
+        }
+    }
+
+    /**
+     * Системный. Повторения задачи для проверки, обычная задача - сама по себе. Повторения не сохраняются.
+     */
+    private static List<Task> expand(Task task) {
+        if (!(task instanceof RecurringTask)) {
+            return List.of(task);
+        }
+        RecurringTask series = (RecurringTask) task;
+        List<Task> occurrences = new ArrayList<>(series.getCount());
+        for (int index = 0; index < series.getCount(); index++) {
+            occurrences.add(series.getOccurrence(index));
+        }
+        return occurrences;
+    }
+
+    /**
+     * Системный. Для проверки лимита дня: delta - на сколько минут изменится загрузка дня.
+     */
+    private void checkDailyCapacity(Task task, long day, int delta) {
+        if (delta > 0 && workload.load(day) + delta > dailyCapacity) {
+            throw new IllegalArgumentException("Ошибка! задача " + task.getName() +
+                    " превышает лимит загрузки " + dailyCapacity + " мин. на " + LocalDate.ofEpochDay(day));
+        }
+    }
+
+    /**
+     * Системный. Для проверки пакета: пересечения внутри пакета - одним проходом по времени начала,
+     * пересечения с расписанием - по дереву и сериям повторений, без учета задач, которые пакет заменяет.
+     */
+    private void checkBatchIntersections(Task[] tasks, boolean replacing) {
+        Set<Integer> batchIds = new HashSet<>();
+        List<Task> scheduled = new ArrayList<>(tasks.length);
+        for (Task task : tasks) {
+            if (task.getType() == TaskTypes.EPIC) {
+                continue;
+            }
+            checkRecurrence(task);
+            if (replacing) {
+                batchIds.add(task.getId());
+            }
+            if (task.getStartMinute() != EpochMinutes.NONE) {
+                scheduled.addAll(expand(task));
+            }
+        }
+        scheduled.sort(Comparator.comparingLong(Task::getStartMinute));
+        Task latest = null;
+        long latestFinish = Long.MIN_VALUE;
+        for (Task task : scheduled) {
+            long start = task.getStartMinute() * 60L;
+            long finish = task.getFinishMinute() * 60L;
+            if (latest != null && start < latestFinish && start < finish
+                    && !(replacing && latest.getId() == task.getId())) {
+                throw new IllegalArgumentException("Ошибка! задача " + task.getName() +
+                        " пересекается по времени" + " с " + latest.getName());
+            }
+            int crossId = schedule.findOverlap(start, finish, batchIds::contains);
+            if (crossId == TaskIntervalTree.NOT_FOUND) {
+                crossId = recurring.findOverlap(start, finish, batchIds::contains);
+            }
+            if (crossId != TaskIntervalTree.NOT_FOUND) {
+                throw new IllegalArgumentException("Ошибка! задача " + task.getName() +
+                        " пересекается по времени" + " с " + findScheduledTask(crossId).getName());
+            }
+            if (finish > latestFinish) {
+                latest = task;
+                latestFinish = finish;
+            }
+        }
+        if (dailyCapacity > 0) {
+            checkBatchCapacity(scheduled, batchIds);
+        }
+    }
+
+    /**
+     * Системный. Для проверки лимита дня пакетом: изменения загрузки по дням суммируются по всему пакету,
+     * задачи, которые пакет заменяет, освобождают свои минуты - в том числе те, что пакет снимает с расписания.
+     */
+    private void checkBatchCapacity(List<Task> scheduled, Set<Integer> replacedIds) {
+        Map<Long, Integer> deltas = new HashMap<>();
+        Map<Long, Task> culprits = new HashMap<>();
+        for (Task task : scheduled) {
+            DailyWorkload.forEachDay(task.getStartMinute(), task.getFinishMinute(), (day, minutes) -> {
+                deltas.merge(day, minutes, Integer::sum);
+                culprits.put(day, task);
+            });
+        }
+        for (int replacedId : replacedIds) {
+            workload.forEachDay(replacedId,
+                    (day, minutes) -> deltas.computeIfPresent(day, (key, delta) -> delta - minutes));
+        }
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            checkDailyCapacity(culprits.get(delta.getKey()), delta.getKey(), delta.getValue());
+        }
+    }
+
+    /**
+     * Системный. Для обновления задачи во всех индексах и события подписчикам.
+     * before - версия до изменения, если она известна.
+     */
+    private void indexTask(Task task, Task before) {
+        boolean added = !statusIndex.contains(task.getId());
+        if (task.getType() != TaskTypes.EPIC) {
+            scheduleTask(task);
+            task.setBlockedBy(added || before == null ? new ArrayList<>() : new ArrayList<>(before.getBlockedBy()));
+            dependencies.put(task.getId(), task.getDuration());
+        }
+        store.writeBack(task);
+        statusIndex.put(task);
+        if (added) {
+            searchIndex.add(task.getId(), searchText(task));
+        } else if (task.getType() != TaskTypes.EPIC && before != null) {
+            searchIndex.replace(task.getId(), searchText(before), searchText(task));
+        }
+        publish(task);
+        markChanged();
+        if (events.hasSubscribers()) {
+            events.publish(added ? TaskEvent.Kind.ADDED : TaskEvent.Kind.UPDATED,
+                    added || before == null ? null : TaskSnapshot.freeze(before), TaskSnapshot.freeze(task));
+        }
+    }
+
+    private static String searchText(Task task) {
+        return task.getName() + " " + task.getDescription();
+    }
+
+
+    /**
+     * Системный. Для удаления задачи из всех индексов и события подписчикам.
+     */
+    private void unindexTask(Task task) {
+        if (task == null) {
+            return;
+        }
+        unscheduleTask(task.getId());
+        accessStatistics.remove(task.getId());
+        for (int blockedId : dependencies.remove(task.getId())) {
+            Task blocked = store.get(blockedId);
+            blocked.getBlockedBy().remove(Integer.valueOf(task.getId()));
+            store.writeBack(blocked);
+            publish(blocked);
+        }
+        unpublish(task);
+        searchIndex.remove(task.getId(), searchText(task));
+        TaskTypes type = statusIndex.remove(task.getId());
+        if (type != null) {
+            markChanged();
+            if (events.hasSubscribers()) {
+                events.publish(TaskEvent.Kind.REMOVED, TaskSnapshot.freeze(task), null);
+            }
+        }
+    }
+
+    /**
+     * Системный. Для обновления задачи в индексе по времени.
+     * Одно удаление и одна вставка на изменение.
+     */
+    private void scheduleTask(Task task) {
+        if (task instanceof RecurringTask) {
+            RecurringTask series = (RecurringTask) task;
+            schedule.remove(task.getId());
+            unscheduledTasks.remove(task.getId());
+            recurring.put(task.getId(), series.getStartMinute(), series.getDuration(), series.getPeriod(),
+                    series.getCount());
+            workload.put(task.getId(), series.getStartMinute(), series.getDuration(), series.getPeriod(),
+                    series.getCount());
+            return;
+        }
+        recurring.remove(task.getId());
+        if (task.getStartMinute() == EpochMinutes.NONE) {
+            schedule.remove(task.getId());
+            workload.remove(task.getId());
+            unscheduledTasks.add(task.getId());
+            return;
+        }
+        unscheduledTasks.remove(task.getId());
+        schedule.add(task.getId(), task.getStartMinute() * 60L, task.getFinishMinute() * 60L);
+        workload.put(task.getId(), task.getStartMinute(), task.getFinishMinute());
+    }
+
+    /**
+     * Системный. Для удаления задачи из индекса по времени.
+     */
+    private void unscheduleTask(int id) {
+        schedule.remove(id);
+        recurring.remove(id);
+        workload.remove(id);
+        unscheduledTasks.remove(id);
+    }
+
+    private Task findScheduledTask(int id) {
+        return store.get(id);
+    }
+
+    /**
+     * Эпик, который меняет пакет: рабочий объект и копия до изменения для события.
+     */
+    private static class EpicChange {
+        Epic epic;
+        final Epic before;
+
+        EpicChange(Epic epic, Epic before) {
+            this.epic = epic;
+            this.before = before;
+        }
+    }
+
+    /**
+     * Системный. Задачи и подзадачи по времени начала и id, задачи без времени - в конце.
+     * Повторяющаяся задача идет один раз, по первому повторению.
+     * Представление только для чтения поверх индексов, без копирования.
+     */
+    private class PrioritizedTasks extends AbstractSet<Task> {
+        @Override
+        public Iterator<Task> iterator() {
+            final PrimitiveIterator.OfInt scheduled = schedule.iterator();
+            final PrimitiveIterator.OfInt series = recurring.iterator();
+            final Iterator<Integer> unscheduled = unscheduledTasks.iterator();
+            return new Iterator<>() {
+                private Task nextScheduled = scheduled.hasNext() ? findScheduledTask(scheduled.nextInt()) : null;
+                private Task nextSeries = series.hasNext() ? findScheduledTask(series.nextInt()) : null;
+
+                @Override
+                public boolean hasNext() {
+                    return nextScheduled != null || nextSeries != null || unscheduled.hasNext();
                 }
-                if (endTimeOfNewTask.isAfter(task.getStartTime())
-                        && endTimeOfNewTask.isBefore(endTimeOfTask)) {
-                    throw new IllegalArgumentException("Ошибка! задача " + newTask.getName() +
-                            " пересекается по времени" + " с " + task.getName());
+
+                @Override
+                public Task next() {
+                    if (nextScheduled == null && nextSeries == null) {
+                        return findScheduledTask(unscheduled.next());
+                    }
+                    Task task;
+                    if (nextSeries == null || nextScheduled != null && (nextScheduled.getStartMinute()
+                            < nextSeries.getStartMinute() || nextScheduled.getStartMinute()
+                            == nextSeries.getStartMinute() && nextScheduled.getId() < nextSeries.getId())) {
+                        task = nextScheduled;
+                        nextScheduled = scheduled.hasNext() ? findScheduledTask(scheduled.nextInt()) : null;
+                    } else {
+                        task = nextSeries;
+                        nextSeries = series.hasNext() ? findScheduledTask(series.nextInt()) : null;
+                    }
+                    return task;
                 }
+            };
+        }
+
+        @Override
+        public int size() {
+            return schedule.size() + recurring.size() + unscheduledTasks.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Task)) {
+                return false;
             }
+            Task task = (Task) o;
+            return (schedule.contains(task.getId()) || recurring.contains(task.getId())
+                    || unscheduledTasks.contains(task.getId()))
+                    && task.equals(findScheduledTask(task.getId()));
         }
     }
 }
\ No newline at end of file
@@ -40,7 +40,7 @@ public class KVClient {
     }
 
     public void put(String key, String json) {
-        URI save = URI.create("http://localhost:8078/" + "save/" + key + "/?API_KEY=" + apiKey);
+        URI save = URI.create("http://localhost:8078/" + "save/" + key + "/?API_TOKEN=" + apiKey);
         HttpRequest request = HttpRequest
                 .newBuilder()
                 .uri(save)
@@ -57,7 +57,7 @@ public class KVClient {
 
     public String load(String key) {
         String responseString = "";
-        URI load = URI.create(this.url + "load/" + key + "/?API_KEY=" + apiKey);
+        URI load = URI.create(this.url + "load/" + key + "/?API_TOKEN=" + apiKey);
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(load)
                 .GET()
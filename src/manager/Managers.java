@@ -1,5 +1,7 @@
 package manager;
 
+import java.time.Duration;
+
 public class Managers {
 
      public static TaskManager getDefault() {
@@ -10,7 +12,43 @@ public class Managers {
         return new InMemoryHistoryManager();
     }
 
+    /**
+     * История не больше capacity задач, давно просмотренные вытесняются.
+     */
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity, null);
+    }
+
+    /**
+     * История не больше capacity задач, записи удаляются через ttl после последнего просмотра.
+     */
+    public static HistoryManager getDefaultHistory(int capacity, Duration ttl) {
+        return new InMemoryHistoryManager(capacity, ttl);
+    }
+
     public static FileBackedTasksManager getFileBackedTasksManager() {
          return new FileBackedTasksManager();
     }
+
+    public static ConcurrentTaskManager getConcurrentTaskManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    /**
+     * Многопоточный менеджер с заданной историей, например getDefaultHistory(capacity, ttl).
+     */
+    public static ConcurrentTaskManager getConcurrentTaskManager(HistoryManager historyManager) {
+        return new ConcurrentTaskManager(historyManager);
+    }
+
+    public static OffHeapTaskManager getOffHeapTaskManager() {
+        return new OffHeapTaskManager();
+    }
+
+    /**
+     * Менеджер вне кучи с заданной историей, например getDefaultHistory(capacity).
+     */
+    public static OffHeapTaskManager getOffHeapTaskManager(HistoryManager historyManager) {
+        return new OffHeapTaskManager(historyManager);
+    }
 }
\ No newline at end of file
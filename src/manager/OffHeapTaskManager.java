@@ -0,0 +1,25 @@
+package manager;
+
+/**
+ * Менеджер задач для очень больших досок.
+ * Задачи лежат вне кучи, по колонкам фиксированной ширины, строки - в отдельной области.
+ * Объекты модели создаются только на границе API: каждое чтение возвращает новую копию,
+ * изменения полученной задачи нужно сохранять через update-методы.
+ * Индексы по статусу, времени, дням и словам хранят на задачу только элементы массивов по id.
+ * На куче на задачу остаются: вклад подзадачи в агрегаты эпика (объект и два узла TreeMap),
+ * серия повторяющейся задачи, узел графа у задачи с зависимостями. После первого getSnapshot
+ * или getAnalytics менеджер держит неизменяемую копию каждой задачи для снимков.
+ */
+public class OffHeapTaskManager extends InMemoryTaskManager {
+
+    public OffHeapTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    /**
+     * Менеджер с заданной историей: для больших досок - ограниченной, Managers.getDefaultHistory(capacity).
+     */
+    public OffHeapTaskManager(HistoryManager historyManager) {
+        super(historyManager, new OffHeapTaskStore());
+    }
+}
@@ -0,0 +1,396 @@
+package manager;
+
+import model.Epic;
+import model.EpochMinutes;
+import model.RecurringTask;
+import model.Status;
+import model.SubTask;
+import model.Task;
+import model.TaskTypes;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Хранилище задач вне кучи, по колонкам фиксированной ширины, индексированным id.
+ * Тип, статус, эпик, начало, продолжительность, окончание эпика и правило повторения лежат в прямых ByteBuffer,
+ * строки и списки id - в общей области (arena), в колонках только ссылки на них.
+ * Объекты модели создаются при каждом чтении, хранилище не держит ссылок на задачи:
+ * изменения полученной задачи нужно записать обратно через writeBack.
+ */
+class OffHeapTaskStore implements TaskStore {
+    private static final int INITIAL_ROWS = 1024;
+    private static final int INITIAL_ARENA = 64 * 1024;
+    private static final byte EMPTY = 0;
+    private static final long NO_REF = -1L;
+    private static final TaskTypes[] TYPES = TaskTypes.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private int rows;
+    private ByteBuffer types;
+    private ByteBuffer statuses;
+    private ByteBuffer epicIds;
+    private ByteBuffer starts;
+    private ByteBuffer durations;
+    private ByteBuffer finishes;
+    private ByteBuffer names;
+    private ByteBuffer descriptions;
+    private ByteBuffer links;
+    private ByteBuffer periods;
+    private ByteBuffer repeats;
+    private final int[] counts = new int[TYPES.length];
+
+    private ByteBuffer arena;
+    private int arenaTop;
+    private int arenaGarbage;
+
+    OffHeapTaskStore() {
+        clear();
+    }
+
+    @Override
+    public Task get(int id) {
+        TaskTypes type = typeOf(id);
+        return type == null ? null : read(id, type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Task> T get(int id, TaskTypes type) {
+        if (typeOf(id) != type) {
+            return null;
+        }
+        return (T) read(id, type);
+    }
+
+    @Override
+    public TaskTypes typeOf(int id) {
+        if (id < 0 || id >= rows) {
+            return null;
+        }
+        byte tag = types.get(id);
+        return tag == EMPTY ? null : TYPES[tag - 1];
+    }
+
+    @Override
+    public Task put(Task task) {
+        Task previous = get(task.getId());
+        writeBack(task);
+        return previous;
+    }
+
+    /**
+     * Перезаписать строку задачи без чтения прежней версии.
+     */
+    @Override
+    public void writeBack(Task task) {
+        int id = task.getId();
+        if (id < 0) {
+            throw new IllegalArgumentException("Некорректный id задачи: " + id);
+        }
+        if (id >= rows) {
+            allocate(Math.max(id + 1, rows * 2), true);
+        }
+        release(id);
+        TaskTypes type = task.getType();
+        types.put(id, (byte) (type.ordinal() + 1));
+        statuses.put(id, task.getStatus() == null ? EMPTY : (byte) (task.getStatus().ordinal() + 1));
+        epicIds.putInt(id * Integer.BYTES, type == TaskTypes.SUBTASK ? ((SubTask) task).getEpicId() : 0);
+        starts.putLong(id * Long.BYTES, task.getStartMinute());
+        durations.putInt(id * Integer.BYTES, task.getDuration());
+        finishes.putLong(id * Long.BYTES, type == TaskTypes.EPIC ? task.getFinishMinute() : EpochMinutes.NONE);
+        names.putLong(id * Long.BYTES, writeString(task.getName()));
+        descriptions.putLong(id * Long.BYTES, writeString(task.getDescription()));
+        links.putLong(id * Long.BYTES, type == TaskTypes.EPIC
+                ? writeIds(((Epic) task).getSubTaskIds(), null)
+                : writeIds(null, task.getBlockedBy()));
+        boolean series = task instanceof RecurringTask;
+        periods.putInt(id * Integer.BYTES, series ? ((RecurringTask) task).getPeriod() : 0);
+        repeats.putInt(id * Integer.BYTES, series ? ((RecurringTask) task).getCount() : 0);
+        counts[type.ordinal()]++;
+    }
+
+    @Override
+    public Task remove(int id) {
+        Task task = get(id);
+        if (task != null) {
+            release(id);
+        }
+        return task;
+    }
+
+    @Override
+    public int size(TaskTypes type) {
+        return counts[type.ordinal()];
+    }
+
+    @Override
+    public <T extends Task> ArrayList<T> values(TaskTypes type) {
+        return values(type, -1, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Task> ArrayList<T> values(TaskTypes type, int afterId, int limit) {
+        ArrayList<T> values = new ArrayList<>(Math.min(limit, counts[type.ordinal()]));
+        byte tag = (byte) (type.ordinal() + 1);
+        for (int id = Math.max(afterId + 1, 0); afterId != Integer.MAX_VALUE && id < rows && values.size() < limit;
+             id++) {
+            if (types.get(id) == tag) {
+                values.add((T) read(id, type));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public <T extends Task> Iterator<T> iterator(TaskTypes type) {
+        return new Iterator<>() {
+            private final byte tag = (byte) (type.ordinal() + 1);
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (cursor < rows && types.get(cursor) != tag) {
+                    cursor++;
+                }
+                return cursor < rows;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (T) read(cursor++, type);
+            }
+        };
+    }
+
+    @Override
+    public void clear() {
+        allocate(INITIAL_ROWS, false);
+        arena = column(INITIAL_ARENA);
+        arenaTop = 0;
+        arenaGarbage = 0;
+        Arrays.fill(counts, 0);
+    }
+
+    /**
+     * Занято байт в области строк и списков, вместе с еще не собранным мусором.
+     */
+    int arenaBytes() {
+        return arenaTop;
+    }
+
+    /**
+     * Системный. Для сборки объекта модели из колонок.
+     */
+    private Task read(int id, TaskTypes type) {
+        byte statusTag = statuses.get(id);
+        Status status = statusTag == EMPTY ? null : STATUSES[statusTag - 1];
+        String name = readString(names.getLong(id * Long.BYTES));
+        String description = readString(descriptions.getLong(id * Long.BYTES));
+        long linksRef = links.getLong(id * Long.BYTES);
+        Task task;
+        switch (type) {
+            case EPIC:
+                Epic epic = new Epic(id, name, description, status);
+                epic.setSubTasks(readIds(linksRef));
+                epic.setFinishMinute(finishes.getLong(id * Long.BYTES));
+                task = epic;
+                break;
+            case SUBTASK:
+                task = new SubTask(id, name, description, status, epicIds.getInt(id * Integer.BYTES));
+                break;
+            default:
+                int count = repeats.getInt(id * Integer.BYTES);
+                task = count == 0 ? new Task(id, name, description, status)
+                        : new RecurringTask(id, name, description, status, null, 0,
+                        periods.getInt(id * Integer.BYTES), count);
+        }
+        if (type != TaskTypes.EPIC && linksRef != NO_REF) {
+            int[] blockedBy = readIds(linksRef);
+            ArrayList<Integer> list = new ArrayList<>(blockedBy.length);
+            for (int blockedId : blockedBy) {
+                list.add(blockedId);
+            }
+            task.setBlockedBy(list);
+        }
+        task.setStartMinute(starts.getLong(id * Long.BYTES));
+        task.setDuration(durations.getInt(id * Integer.BYTES));
+        return task;
+    }
+
+    /**
+     * Системный. Для освобождения строки: данные по ссылкам уходят в мусор, ссылки сбрасываются,
+     * чтобы уплотнение во время перезаписи строки не переносило старые данные.
+     */
+    private void release(int id) {
+        byte tag = types.get(id);
+        if (tag == EMPTY) {
+            return;
+        }
+        counts[tag - 1]--;
+        types.put(id, EMPTY);
+        arenaGarbage += refBytes(names.getLong(id * Long.BYTES), Character.BYTES)
+                + refBytes(descriptions.getLong(id * Long.BYTES), Character.BYTES)
+                + refBytes(links.getLong(id * Long.BYTES), Integer.BYTES);
+        names.putLong(id * Long.BYTES, NO_REF);
+        descriptions.putLong(id * Long.BYTES, NO_REF);
+        links.putLong(id * Long.BYTES, NO_REF);
+    }
+
+    private long writeString(String value) {
+        if (value == null) {
+            return NO_REF;
+        }
+        int offset = reserve((long) value.length() * Character.BYTES);
+        for (int i = 0; i < value.length(); i++) {
+            arena.putChar(offset + i * Character.BYTES, value.charAt(i));
+        }
+        return ref(offset, value.length());
+    }
+
+    private String readString(long ref) {
+        if (ref == NO_REF) {
+            return null;
+        }
+        int offset = (int) (ref >>> 32);
+        char[] chars = new char[(int) ref];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = arena.getChar(offset + i * Character.BYTES);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Системный. Для записи списка id: массива подзадач эпика или списка блокирующих задач.
+     */
+    private long writeIds(int[] ids, List<Integer> list) {
+        int length = ids != null ? ids.length : list.size();
+        if (length == 0) {
+            return NO_REF;
+        }
+        int offset = reserve((long) length * Integer.BYTES);
+        for (int i = 0; i < length; i++) {
+            arena.putInt(offset + i * Integer.BYTES, ids != null ? ids[i] : list.get(i));
+        }
+        return ref(offset, length);
+    }
+
+    private int[] readIds(long ref) {
+        if (ref == NO_REF) {
+            return new int[0];
+        }
+        int offset = (int) (ref >>> 32);
+        int[] ids = new int[(int) ref];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = arena.getInt(offset + i * Integer.BYTES);
+        }
+        return ids;
+    }
+
+    private static long ref(int offset, int length) {
+        return ((long) offset << 32) | (length & 0xFFFFFFFFL);
+    }
+
+    private static int refBytes(long ref, int unit) {
+        return ref == NO_REF ? 0 : (int) ref * unit;
+    }
+
+    /**
+     * Системный. Для выделения места в области.
+     * Если мусора не меньше, чем живых данных, область сначала уплотняется, иначе растет вдвое.
+     */
+    private int reserve(long bytes) {
+        if (arenaTop + bytes > arena.capacity()) {
+            long live = arenaTop - arenaGarbage;
+            long needed = live + bytes;
+            if (arenaGarbage < live || needed > arena.capacity()) {
+                needed = Math.max(needed, (long) arena.capacity() * 2);
+            } else {
+                needed = arena.capacity();
+            }
+            if (needed > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Хранилище вне кучи переполнено");
+            }
+            compact((int) needed);
+        }
+        int offset = arenaTop;
+        arenaTop += (int) bytes;
+        return offset;
+    }
+
+    /**
+     * Системный. Для переноса живых строк и списков в новую область без мусора.
+     */
+    private void compact(int capacity) {
+        ByteBuffer old = arena;
+        arena = column(capacity);
+        arenaTop = 0;
+        arenaGarbage = 0;
+        for (int id = 0; id < rows; id++) {
+            if (types.get(id) != EMPTY) {
+                names.putLong(id * Long.BYTES, move(old, names.getLong(id * Long.BYTES), Character.BYTES));
+                descriptions.putLong(id * Long.BYTES,
+                        move(old, descriptions.getLong(id * Long.BYTES), Character.BYTES));
+                links.putLong(id * Long.BYTES, move(old, links.getLong(id * Long.BYTES), Integer.BYTES));
+            }
+        }
+    }
+
+    private long move(ByteBuffer from, long ref, int unit) {
+        if (ref == NO_REF) {
+            return NO_REF;
+        }
+        int bytes = (int) ref * unit;
+        int offset = arenaTop;
+        ByteBuffer source = from.duplicate();
+        source.limit((int) (ref >>> 32) + bytes).position((int) (ref >>> 32));
+        ByteBuffer target = arena.duplicate();
+        target.position(offset);
+        target.put(source);
+        arenaTop += bytes;
+        return ref(offset, (int) ref);
+    }
+
+    /**
+     * Системный. Для роста колонок: содержимое копируется, если keep, новые строки пусты.
+     */
+    private void allocate(int capacity, boolean keep) {
+        types = grow(keep ? types : null, capacity, Byte.BYTES);
+        statuses = grow(keep ? statuses : null, capacity, Byte.BYTES);
+        epicIds = grow(keep ? epicIds : null, capacity, Integer.BYTES);
+        starts = grow(keep ? starts : null, capacity, Long.BYTES);
+        durations = grow(keep ? durations : null, capacity, Integer.BYTES);
+        finishes = grow(keep ? finishes : null, capacity, Long.BYTES);
+        names = grow(keep ? names : null, capacity, Long.BYTES);
+        descriptions = grow(keep ? descriptions : null, capacity, Long.BYTES);
+        links = grow(keep ? links : null, capacity, Long.BYTES);
+        periods = grow(keep ? periods : null, capacity, Integer.BYTES);
+        repeats = grow(keep ? repeats : null, capacity, Integer.BYTES);
+        rows = capacity;
+    }
+
+    private static ByteBuffer grow(ByteBuffer old, int capacity, int width) {
+        if ((long) capacity * width > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Хранилище вне кучи переполнено");
+        }
+        ByteBuffer grown = column(capacity * width);
+        if (old != null) {
+            grown.put(old.duplicate().clear());
+        }
+        return grown;
+    }
+
+    private static ByteBuffer column(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,214 @@
+package manager;
+
+import model.Task;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Неизменяемый список задач по возрастанию id - префиксное дерево по битам id, по 32 ветви в узле.
+ * Изменение копирует только путь от корня до задачи (не больше семи узлов), остальные узлы
+ * общие со старой версией, поэтому старая версия остается целой и ее можно читать без блокировки.
+ * Узел хранит число задач в поддереве: доступ по номеру - O(log32 n).
+ */
+final class PersistentTaskList<T extends Task> extends AbstractList<T> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentTaskList<?> EMPTY = new PersistentTaskList<>(null, 0);
+
+    private final Node root;
+    private final int shift;
+
+    private static final class Node {
+        final Object[] children;
+        final int count;
+
+        Node(Object[] children, int count) {
+            this.children = children;
+            this.count = count;
+        }
+    }
+
+    private PersistentTaskList(Node root, int shift) {
+        this.root = root;
+        this.shift = shift;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Task> PersistentTaskList<T> empty() {
+        return (PersistentTaskList<T>) EMPTY;
+    }
+
+    /**
+     * Версия списка с задачей: задача с тем же id заменяется.
+     */
+    PersistentTaskList<T> with(T task) {
+        int id = task.getId();
+        if (id < 0) {
+            throw new IllegalArgumentException("Некорректный id задачи: " + id);
+        }
+        Node grown = root;
+        int grownShift = shift;
+        while (grownShift + BITS < Integer.SIZE && (id >>> (grownShift + BITS)) != 0) {
+            if (grown != null) {
+                Object[] children = new Object[WIDTH];
+                children[0] = grown;
+                grown = new Node(children, grown.count);
+            }
+            grownShift += BITS;
+        }
+        return new PersistentTaskList<>(put(grown, grownShift, id, task), grownShift);
+    }
+
+    /**
+     * Версия списка без задачи с указанным id.
+     */
+    PersistentTaskList<T> without(int id) {
+        if (find(id) == null) {
+            return this;
+        }
+        return new PersistentTaskList<>(remove(root, shift, id), shift);
+    }
+
+    /**
+     * Задача с указанным id или null.
+     */
+    @SuppressWarnings("unchecked")
+    T find(int id) {
+        if (id < 0 || shift + BITS < Integer.SIZE && (id >>> (shift + BITS)) != 0) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; node != null; level -= BITS) {
+            Object child = node.children[(id >>> level) & MASK];
+            if (level == 0) {
+                return (T) child;
+            }
+            node = (Node) child;
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node node = root;
+        for (int level = shift; ; level -= BITS) {
+            for (Object child : node.children) {
+                if (child == null) {
+                    continue;
+                }
+                if (level == 0) {
+                    if (index-- == 0) {
+                        return (T) child;
+                    }
+                    continue;
+                }
+                Node inner = (Node) child;
+                if (index < inner.count) {
+                    node = inner;
+                    break;
+                }
+                index -= inner.count;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return root == null ? 0 : root.count;
+    }
+
+    /**
+     * Обход в порядке id без доступа по номеру: стек позиций по уровням дерева.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private final Node[] path = new Node[Integer.SIZE / BITS + 1];
+            private final int[] positions = new int[path.length];
+            private int depth = -1;
+            private T next;
+
+            {
+                if (root != null) {
+                    path[0] = root;
+                    depth = 0;
+                }
+                advance();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                T result = next;
+                advance();
+                return result;
+            }
+
+            @SuppressWarnings("unchecked")
+            private void advance() {
+                next = null;
+                while (depth >= 0) {
+                    Node node = path[depth];
+                    if (positions[depth] == WIDTH) {
+                        depth--;
+                        continue;
+                    }
+                    Object child = node.children[positions[depth]++];
+                    if (child == null) {
+                        continue;
+                    }
+                    if (shift - depth * BITS == 0) {
+                        next = (T) child;
+                        return;
+                    }
+                    depth++;
+                    path[depth] = (Node) child;
+                    positions[depth] = 0;
+                }
+            }
+        };
+    }
+
+    private static Node put(Node node, int level, int id, Task task) {
+        Object[] children = node == null ? new Object[WIDTH] : node.children.clone();
+        int count = node == null ? 0 : node.count;
+        int slot = (id >>> level) & MASK;
+        if (level == 0) {
+            if (children[slot] == null) {
+                count++;
+            }
+            children[slot] = task;
+            return new Node(children, count);
+        }
+        Node child = (Node) children[slot];
+        Node updated = put(child, level - BITS, id, task);
+        children[slot] = updated;
+        return new Node(children, count - (child == null ? 0 : child.count) + updated.count);
+    }
+
+    private static Node remove(Node node, int level, int id) {
+        int slot = (id >>> level) & MASK;
+        Object[] children = node.children.clone();
+        if (level == 0) {
+            children[slot] = null;
+        } else {
+            children[slot] = remove((Node) children[slot], level - BITS, id);
+        }
+        return node.count == 1 ? null : new Node(children, node.count - 1);
+    }
+}
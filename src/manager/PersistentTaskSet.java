@@ -0,0 +1,178 @@
+package manager;
+
+import model.EpochMinutes;
+import model.Task;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Неизменяемое множество задач по приоритету: по времени начала и id, задачи без времени - в конце.
+ * Декартово дерево с приоритетом от id: изменение копирует только путь поиска, O(log n) узлов,
+ * остальное дерево общее со старой версией.
+ */
+final class PersistentTaskSet extends AbstractSet<Task> {
+    static final PersistentTaskSet EMPTY = new PersistentTaskSet(null);
+
+    private final Node root;
+
+    private static final class Node {
+        final Task task;
+        final Node left;
+        final Node right;
+        final int size;
+
+        Node(Task task, Node left, Node right) {
+            this.task = task;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    private PersistentTaskSet(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Версия множества с задачей. Прежнюю версию задачи нужно сначала убрать через without:
+     * ее место определяется прежним временем начала.
+     */
+    PersistentTaskSet with(Task task) {
+        return new PersistentTaskSet(insert(root, task));
+    }
+
+    PersistentTaskSet without(Task task) {
+        Node removed = delete(root, task);
+        return removed == root ? this : new PersistentTaskSet(removed);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Task)) {
+            return false;
+        }
+        Task task = (Task) o;
+        Node node = root;
+        while (node != null) {
+            int order = compare(task, node.task);
+            if (order == 0) {
+                return task.equals(node.task);
+            }
+            node = order < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<>() {
+            private final Deque<Node> stack = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public Task next() {
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node node = stack.pop();
+                pushLeft(node.right);
+                return node.task;
+            }
+
+            private void pushLeft(Node node) {
+                for (; node != null; node = node.left) {
+                    stack.push(node);
+                }
+            }
+        };
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node insert(Node node, Task task) {
+        if (node == null) {
+            return new Node(task, null, null);
+        }
+        int order = compare(task, node.task);
+        if (order == 0) {
+            return new Node(task, node.left, node.right);
+        }
+        if (order < 0) {
+            Node left = insert(node.left, task);
+            if (priority(left) > priority(node)) {
+                return new Node(left.task, left.left, new Node(node.task, left.right, node.right));
+            }
+            return new Node(node.task, left, node.right);
+        }
+        Node right = insert(node.right, task);
+        if (priority(right) > priority(node)) {
+            return new Node(right.task, new Node(node.task, node.left, right.left), right.right);
+        }
+        return new Node(node.task, node.left, right);
+    }
+
+    private static Node delete(Node node, Task task) {
+        if (node == null) {
+            return null;
+        }
+        int order = compare(task, node.task);
+        if (order == 0) {
+            return merge(node.left, node.right);
+        }
+        if (order < 0) {
+            Node left = delete(node.left, task);
+            return left == node.left ? node : new Node(node.task, left, node.right);
+        }
+        Node right = delete(node.right, task);
+        return right == node.right ? node : new Node(node.task, node.left, right);
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (priority(left) > priority(right)) {
+            return new Node(left.task, left.left, merge(left.right, right));
+        }
+        return new Node(right.task, merge(left, right.left), right.right);
+    }
+
+    /**
+     * Системный. Порядок по (начало, id), задачи без времени - после всех задач со временем.
+     */
+    private static int compare(Task first, Task second) {
+        int order = Long.compare(sortKey(first), sortKey(second));
+        return order != 0 ? order : Integer.compare(first.getId(), second.getId());
+    }
+
+    private static long sortKey(Task task) {
+        return task.getStartMinute() == EpochMinutes.NONE ? Long.MAX_VALUE : task.getStartMinute();
+    }
+
+    private static int priority(Node node) {
+        int h = node.task.getId() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,180 @@
+package manager;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Индекс повторяющихся задач: по одной записи с правилом на задачу, повторения не хранятся.
+ * Повторения, попадающие в интервал, вычисляются арифметически, без перебора всей серии.
+ * Время - в ключах TaskIntervalTree (секунды от эпохи), запрос стоит O(r), r - число серий.
+ */
+class RecurringSchedule {
+    private final Map<Integer, Series> series = new HashMap<>();
+    private final TreeSet<Series> byStart = new TreeSet<>(
+            Comparator.comparingLong((Series s) -> s.start).thenComparingInt(s -> s.id));
+
+    /**
+     * Повторение серии: id задачи и номер повторения.
+     */
+    interface OccurrenceAction {
+        void accept(int id, int index);
+    }
+
+    private static class Series {
+        final int id;
+        final long start;
+        final long duration;
+        final long period;
+        final int count;
+
+        Series(int id, long start, long duration, long period, int count) {
+            this.id = id;
+            this.start = start;
+            this.duration = duration;
+            this.period = period;
+            this.count = count;
+        }
+
+        /**
+         * Номер первого повторения, которое заканчивается позже from.
+         */
+        int firstEndingAfter(long from) {
+            long index = Math.floorDiv(from - duration - start, period) + 1;
+            return (int) Math.max(0, Math.min(index, count));
+        }
+
+        /**
+         * Номер первого повторения, которое начинается не раньше from.
+         */
+        int firstStartingFrom(long from) {
+            long index = Math.floorDiv(from - start + period - 1, period);
+            return (int) Math.max(0, Math.min(index, count));
+        }
+
+        long occurrenceStart(int index) {
+            return start + index * period;
+        }
+    }
+
+    /**
+     * Добавить серию или заменить прежнюю. Время - в минутах от эпохи, как в модели.
+     */
+    void put(int id, long startMinute, int duration, int period, int count) {
+        remove(id);
+        Series added = new Series(id, startMinute * 60L, duration * 60L, period * 60L, count);
+        series.put(id, added);
+        byStart.add(added);
+    }
+
+    void remove(int id) {
+        Series removed = series.remove(id);
+        if (removed != null) {
+            byStart.remove(removed);
+        }
+    }
+
+    boolean contains(int id) {
+        return series.containsKey(id);
+    }
+
+    int size() {
+        return series.size();
+    }
+
+    void clear() {
+        series.clear();
+        byStart.clear();
+    }
+
+    /**
+     * Серии в порядке (первое начало, id).
+     */
+    PrimitiveIterator.OfInt iterator() {
+        final Iterator<Series> iterator = byStart.iterator();
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public int nextInt() {
+                return iterator.next().id;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+        };
+    }
+
+    /**
+     * Найти серию, повторение которой пересекает [start, finish), пропуская серии из excluded.
+     *
+     * @return id задачи или TaskIntervalTree.NOT_FOUND
+     */
+    int findOverlap(long start, long finish, IntPredicate excluded) {
+        for (Series s : byStart) {
+            if (s.start >= finish) {
+                break;
+            }
+            if (!excluded.test(s.id) && overlaps(s, start, finish)) {
+                return s.id;
+            }
+        }
+        return TaskIntervalTree.NOT_FOUND;
+    }
+
+    /**
+     * Самое позднее окончание повторений, пересекающих [start, finish), или Long.MIN_VALUE.
+     * Ни один интервал, начинающийся раньше этого окончания, не свободен.
+     */
+    long latestOverlapFinish(long start, long finish) {
+        long latest = Long.MIN_VALUE;
+        for (Series s : byStart) {
+            if (s.start >= finish) {
+                break;
+            }
+            if (overlaps(s, start, finish)) {
+                int last = s.firstStartingFrom(finish) - 1;
+                latest = Math.max(latest, s.occurrenceStart(last) + s.duration);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Все повторения, пересекающие [start, finish).
+     */
+    void forEachOverlap(long start, long finish, OccurrenceAction action) {
+        for (Series s : byStart) {
+            if (s.start >= finish) {
+                break;
+            }
+            for (int index = s.firstEndingAfter(start); index < s.count && s.occurrenceStart(index) < finish;
+                 index++) {
+                action.accept(s.id, index);
+            }
+        }
+    }
+
+    /**
+     * Все повторения, начинающиеся в [from, to).
+     */
+    void forEachStartingBetween(long from, long to, OccurrenceAction action) {
+        for (Series s : byStart) {
+            if (s.start >= to) {
+                break;
+            }
+            for (int index = s.firstStartingFrom(from); index < s.count && s.occurrenceStart(index) < to; index++) {
+                action.accept(s.id, index);
+            }
+        }
+    }
+
+    private static boolean overlaps(Series s, long start, long finish) {
+        int index = s.firstEndingAfter(start);
+        return index < s.count && s.occurrenceStart(index) < finish;
+    }
+}
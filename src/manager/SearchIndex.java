@@ -0,0 +1,266 @@
+package manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Инвертированный индекс по словам названия и описания задачи.
+ * Слова хранятся в отсортированном словаре, поэтому поиск по префиксу - это один диапазон словаря.
+ * Задачи слова - отсортированный массив int, у частых слов вместо него битовая карта id:
+ * пересечение таких слов идет по словам long. Объекты создаются на слово, а не на задачу.
+ * Слова - последовательности букв и цифр любого алфавита, без учета регистра, "ё" равна "е".
+ * Текст задач индекс не хранит: при замене и удалении прежний текст передает менеджер.
+ */
+class SearchIndex {
+    private static final int DENSE_SIZE = 1024;
+
+    private final TreeMap<String, Posting> postings = new TreeMap<>();
+
+    /**
+     * Задачи одного слова: отсортированный массив, пока задач мало, потом битовая карта.
+     */
+    private static class Posting {
+        int[] ids = new int[2];
+        BitSet bits;
+        int size;
+
+        void add(int id) {
+            if (bits != null) {
+                if (!bits.get(id)) {
+                    bits.set(id);
+                    size++;
+                }
+                return;
+            }
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+            if (size >= DENSE_SIZE) {
+                bits = new BitSet();
+                for (int i = 0; i < size; i++) {
+                    bits.set(ids[i]);
+                }
+                ids = null;
+            }
+        }
+
+        void remove(int id) {
+            if (bits != null) {
+                if (bits.get(id)) {
+                    bits.clear(id);
+                    size--;
+                }
+                return;
+            }
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Задачи одного слова запроса: отсортированный массив для редких слов, битовая карта для частых.
+     */
+    private static class Match {
+        final int[] ids;
+        final BitSet bits;
+        final int size;
+
+        Match(int[] ids, BitSet bits, int size) {
+            this.ids = ids;
+            this.bits = bits;
+            this.size = size;
+        }
+
+        boolean contains(int id) {
+            return bits != null ? bits.get(id) : Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+
+    /**
+     * Проиндексировать текст новой задачи.
+     */
+    void add(int id, String text) {
+        for (String term : tokenize(text)) {
+            postings.computeIfAbsent(term, key -> new Posting()).add(id);
+        }
+    }
+
+    /**
+     * Заменить прежний текст задачи новым: меняются только слова, которых нет в обоих текстах.
+     */
+    void replace(int id, String previous, String text) {
+        if (text.equals(previous)) {
+            return;
+        }
+        Set<String> previousTerms = tokenize(previous);
+        Set<String> terms = tokenize(text);
+        for (String term : previousTerms) {
+            if (!terms.contains(term)) {
+                removeTerm(term, id);
+            }
+        }
+        for (String term : terms) {
+            if (!previousTerms.contains(term)) {
+                postings.computeIfAbsent(term, key -> new Posting()).add(id);
+            }
+        }
+    }
+
+    /**
+     * Убрать задачу, text - текст, с которым она была проиндексирована.
+     */
+    void remove(int id, String text) {
+        for (String term : tokenize(text)) {
+            removeTerm(term, id);
+        }
+    }
+
+    void clear() {
+        postings.clear();
+    }
+
+    private void removeTerm(String term, int id) {
+        Posting posting = postings.get(term);
+        if (posting == null) {
+            return;
+        }
+        posting.remove(id);
+        if (posting.size == 0) {
+            postings.remove(term);
+        }
+    }
+
+    /**
+     * Задачи, в которых каждое слово запроса является началом какого-нибудь слова задачи.
+     *
+     * @return идентификаторы по возрастанию
+     */
+    List<Integer> search(String query) {
+        List<Match> matches = new ArrayList<>();
+        for (String prefix : tokenize(query)) {
+            Match match = match(prefix);
+            if (match.size == 0) {
+                return Collections.emptyList();
+            }
+            matches.add(match);
+        }
+        if (matches.isEmpty()) {
+            return Collections.emptyList();
+        }
+        matches.sort((first, second) -> Integer.compare(first.size, second.size));
+        Match smallest = matches.get(0);
+        List<Integer> result = new ArrayList<>();
+        boolean dense = true;
+        for (Match match : matches) {
+            dense &= match.bits != null;
+        }
+        if (dense) {
+            BitSet bits = (BitSet) smallest.bits.clone();
+            for (int i = 1; i < matches.size(); i++) {
+                bits.and(matches.get(i).bits);
+            }
+            bits.stream().forEach(result::add);
+            return result;
+        }
+        // у карты, из которой задачи удалялись, задач может быть меньше, чем у массива
+        PrimitiveIterator.OfInt candidates = smallest.bits != null
+                ? smallest.bits.stream().iterator() : Arrays.stream(smallest.ids, 0, smallest.size).iterator();
+        candidates:
+        while (candidates.hasNext()) {
+            int id = candidates.nextInt();
+            for (int i = 1; i < matches.size(); i++) {
+                if (!matches.get(i).contains(id)) {
+                    continue candidates;
+                }
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * Объединение задач всех слов с указанным префиксом.
+     */
+    private Match match(String prefix) {
+        NavigableMap<String, Posting> range = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (range.size() == 1) {
+            Posting posting = range.firstEntry().getValue();
+            return new Match(posting.ids, posting.bits, posting.size);
+        }
+        int total = 0;
+        boolean sparse = true;
+        for (Posting posting : range.values()) {
+            total += posting.size;
+            sparse &= posting.bits == null;
+        }
+        if (sparse && total < DENSE_SIZE) {
+            int[] ids = new int[total];
+            int size = 0;
+            for (Posting posting : range.values()) {
+                System.arraycopy(posting.ids, 0, ids, size, posting.size);
+                size += posting.size;
+            }
+            Arrays.sort(ids);
+            int unique = 0;
+            for (int i = 0; i < size; i++) {
+                if (unique == 0 || ids[unique - 1] != ids[i]) {
+                    ids[unique++] = ids[i];
+                }
+            }
+            return new Match(ids, null, unique);
+        }
+        BitSet bits = new BitSet();
+        for (Posting posting : range.values()) {
+            if (posting.bits != null) {
+                bits.or(posting.bits);
+            } else {
+                for (int i = 0; i < posting.size; i++) {
+                    bits.set(posting.ids[i]);
+                }
+            }
+        }
+        return new Match(null, bits, bits.cardinality());
+    }
+
+    /**
+     * Разбить текст на слова: буквы и цифры подряд, в нижнем регистре.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new HashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,157 @@
+package manager;
+
+import model.Status;
+import model.Task;
+import model.TaskTypes;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Индекс задач по типу и статусу.
+ * Добавление, удаление и подсчет - O(1).
+ * Колонки - двусвязные списки в массивах по id, поэтому на задачу не создается ни одного объекта.
+ */
+class StatusIndex {
+    private static final int NONE = -1;
+    private static final TaskTypes[] TYPES = TaskTypes.values();
+    private static final int STATUSES = Status.values().length;
+
+    private byte[] columns = new byte[0];   // по id: номер колонки + 1, 0 - задачи нет
+    private int[] prev = new int[0];
+    private int[] next = new int[0];
+    private final int[] heads = new int[TYPES.length * STATUSES];
+    private final int[] tails = new int[heads.length];
+    private final int[] counts = new int[heads.length];
+
+    StatusIndex() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+    }
+
+    /**
+     * Добавить задачу или перенести ее в колонку с новым статусом.
+     */
+    void put(Task task) {
+        Status status = task.getStatus() == null ? Status.NEW : task.getStatus();
+        int column = column(task.getType(), status);
+        int id = task.getId();
+        if (contains(id) && columns[id] - 1 == column) {
+            return;
+        }
+        remove(id);
+        grow(id);
+        columns[id] = (byte) (column + 1);
+        prev[id] = tails[column];
+        next[id] = NONE;
+        if (tails[column] == NONE) {
+            heads[column] = id;
+        } else {
+            next[tails[column]] = id;
+        }
+        tails[column] = id;
+        counts[column]++;
+    }
+
+    boolean contains(int id) {
+        return id >= 0 && id < columns.length && columns[id] != 0;
+    }
+
+    /**
+     * Убрать задачу из индекса.
+     *
+     * @return тип удаленной задачи или null
+     */
+    TaskTypes remove(int id) {
+        if (!contains(id)) {
+            return null;
+        }
+        int column = columns[id] - 1;
+        if (prev[id] == NONE) {
+            heads[column] = next[id];
+        } else {
+            next[prev[id]] = next[id];
+        }
+        if (next[id] == NONE) {
+            tails[column] = prev[id];
+        } else {
+            prev[next[id]] = prev[id];
+        }
+        columns[id] = 0;
+        counts[column]--;
+        return TYPES[column / STATUSES];
+    }
+
+    /**
+     * Идентификаторы задач типа с указанным статусом, в порядке попадания в колонку.
+     * Только для чтения, меняется вместе с индексом.
+     */
+    Set<Integer> ids(TaskTypes type, Status status) {
+        final int column = column(type, status);
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return new Iterator<>() {
+                    private int current = heads[column];
+
+                    @Override
+                    public boolean hasNext() {
+                        return current != NONE;
+                    }
+
+                    @Override
+                    public Integer next() {
+                        if (current == NONE) {
+                            throw new NoSuchElementException();
+                        }
+                        int id = current;
+                        current = next[id];
+                        return id;
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Integer && StatusIndex.this.contains((Integer) o)
+                        && columns[(Integer) o] - 1 == column;
+            }
+
+            @Override
+            public int size() {
+                return counts[column];
+            }
+        };
+    }
+
+    int count(TaskTypes type, Status status) {
+        return counts[column(type, status)];
+    }
+
+    void clear() {
+        Arrays.fill(columns, (byte) 0);
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+        Arrays.fill(counts, 0);
+    }
+
+    private static int column(TaskTypes type, Status status) {
+        return type.ordinal() * STATUSES + status.ordinal();
+    }
+
+    /**
+     * Системный. Для места под id: массивы растут вдвое.
+     */
+    private void grow(int id) {
+        if (id < columns.length) {
+            return;
+        }
+        int length = Math.max(id + 1, columns.length * 2);
+        columns = Arrays.copyOf(columns, length);
+        prev = Arrays.copyOf(prev, length);
+        next = Arrays.copyOf(next, length);
+    }
+}
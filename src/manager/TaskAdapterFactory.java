@@ -0,0 +1,87 @@
+package manager;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import model.Epic;
+import model.EpochMinutes;
+import model.RecurringTask;
+import model.Task;
+
+import java.io.IOException;
+
+/**
+ * Адаптер для задач: объект с полем period читается как повторяющаяся задача,
+ * иначе правило повторения потерялось бы при чтении в Task.
+ * У задач и подзадач время окончания не хранится, а вычисляется, поэтому в JSON оно дописывается
+ * при записи и пропускается при чтении. У эпика это обычное поле.
+ */
+public class TaskAdapterFactory implements TypeAdapterFactory {
+    private static final TypeAdapter<Long> MINUTES_ADAPTER = new EpochMinutes.Adapter();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (!Task.class.isAssignableFrom(rawType) || Epic.class.isAssignableFrom(rawType)) {
+            return null;
+        }
+        final TypeAdapter<JsonElement> jsonAdapter = gson.getAdapter(JsonElement.class);
+        if (rawType != Task.class) {
+            return (TypeAdapter<T>) withFinishTime((TypeAdapter<Task>) gson.getDelegateAdapter(this, type),
+                    jsonAdapter);
+        }
+        final TypeAdapter<Task> taskAdapter = withFinishTime(
+                gson.getDelegateAdapter(this, TypeToken.get(Task.class)), jsonAdapter);
+        final TypeAdapter<RecurringTask> recurringAdapter = gson.getAdapter(RecurringTask.class);
+        return (TypeAdapter<T>) new TypeAdapter<Task>() {
+            @Override
+            public void write(JsonWriter jsonWriter, Task task) throws IOException {
+                if (task instanceof RecurringTask) {
+                    recurringAdapter.write(jsonWriter, (RecurringTask) task);
+                } else {
+                    taskAdapter.write(jsonWriter, task);
+                }
+            }
+
+            @Override
+            public Task read(JsonReader jsonReader) throws IOException {
+                JsonElement json = JsonParser.parseReader(jsonReader);
+                if (json.isJsonObject() && ((JsonObject) json).has("period")) {
+                    return recurringAdapter.fromJsonTree(json);
+                }
+                return taskAdapter.fromJsonTree(json);
+            }
+        };
+    }
+
+    /**
+     * Системный. Для записи задачи вместе с вычисленным временем окончания.
+     */
+    private static TypeAdapter<Task> withFinishTime(TypeAdapter<Task> delegate,
+                                                    TypeAdapter<JsonElement> jsonAdapter) {
+        return new TypeAdapter<Task>() {
+            @Override
+            public void write(JsonWriter jsonWriter, Task task) throws IOException {
+                if (task == null) {
+                    jsonWriter.nullValue();
+                    return;
+                }
+                JsonObject json = delegate.toJsonTree(task).getAsJsonObject();
+                json.add("finishTime", MINUTES_ADAPTER.toJsonTree(task.getFinishMinute()));
+                jsonAdapter.write(jsonWriter, json);
+            }
+
+            @Override
+            public Task read(JsonReader jsonReader) throws IOException {
+                return delegate.read(jsonReader);
+            }
+        };
+    }
+}
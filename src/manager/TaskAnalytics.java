@@ -0,0 +1,137 @@
+package manager;
+
+import model.Epic;
+import model.EpochMinutes;
+import model.RecurringTask;
+import model.Status;
+import model.SubTask;
+import model.Task;
+import model.TaskTypes;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Агрегаты по снимку задач: количество по статусам, занятые минуты по дням, доля выполненных подзадач эпиков.
+ * Снимок неизменяем, поэтому большие списки обходятся параллельными потоками без блокировок:
+ * у каждого потока свой аккумулятор, аккумуляторы потом сливаются.
+ */
+public final class TaskAnalytics {
+    static final int PARALLEL_THRESHOLD = 4096;
+    private static final Status[] STATUSES = Status.values();
+
+    private final TaskSnapshot snapshot;
+    private final int parallelThreshold;
+
+    TaskAnalytics(TaskSnapshot snapshot) {
+        this(snapshot, PARALLEL_THRESHOLD);
+    }
+
+    TaskAnalytics(TaskSnapshot snapshot, int parallelThreshold) {
+        this.snapshot = snapshot;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Версия снимка, по которому считаются агрегаты.
+     */
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    /**
+     * Количество задач каждого типа по статусам. Задача без статуса считается новой.
+     */
+    public Map<TaskTypes, Map<Status, Long>> countByStatus() {
+        Map<TaskTypes, Map<Status, Long>> result = new EnumMap<>(TaskTypes.class);
+        for (TaskTypes type : TaskTypes.values()) {
+            long[] counters = stream(snapshot.getByType(type)).collect(Collector.of(
+                    () -> new long[STATUSES.length],
+                    (acc, task) -> acc[task.getStatus() == null ? 0 : task.getStatus().ordinal()]++,
+                    (left, right) -> {
+                        for (int i = 0; i < left.length; i++) {
+                            left[i] += right[i];
+                        }
+                        return left;
+                    }));
+            Map<Status, Long> byStatus = new EnumMap<>(Status.class);
+            for (Status status : STATUSES) {
+                byStatus.put(status, counters[status.ordinal()]);
+            }
+            result.put(type, Collections.unmodifiableMap(byStatus));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Запланированные минуты задач и подзадач по дням.
+     * Задача через полночь делится между днями, повторяющаяся задача учитывается каждым повторением, эпики не учитываются, чтобы не считать подзадачи дважды.
+     */
+    public SortedMap<LocalDate, Long> scheduledMinutesPerDay() {
+        Map<Long, Long> byEpochDay = Stream.concat(stream(snapshot.getTasks()), stream(snapshot.getSubTasks()))
+                .filter(task -> task.getStartMinute() != EpochMinutes.NONE && task.getDuration() > 0)
+                .collect(Collector.of(HashMap::new, TaskAnalytics::addMinutesPerDay, (left, right) -> {
+                    right.forEach((day, minutes) -> left.merge(day, minutes, Long::sum));
+                    return left;
+                }));
+        SortedMap<LocalDate, Long> result = new TreeMap<>();
+        byEpochDay.forEach((day, minutes) -> result.put(LocalDate.ofEpochDay(day), minutes));
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    /**
+     * Доля выполненных подзадач каждого эпика, от 0 до 1, в порядке id эпиков.
+     * У эпика без подзадач доля 0.
+     */
+    public Map<Integer, Double> epicCompletion() {
+        Map<Integer, long[]> progress = stream(snapshot.getSubTasks())
+                .collect(Collector.of(HashMap::new, (Map<Integer, long[]> acc, SubTask subTask) -> {
+                    long[] counters = acc.computeIfAbsent(subTask.getEpicId(), epicId -> new long[2]);
+                    if (subTask.getStatus() == Status.DONE) {
+                        counters[0]++;
+                    }
+                    counters[1]++;
+                }, (left, right) -> {
+                    right.forEach((epicId, counters) -> left.merge(epicId, counters, (a, b) -> {
+                        a[0] += b[0];
+                        a[1] += b[1];
+                        return a;
+                    }));
+                    return left;
+                }));
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        for (Epic epic : snapshot.getEpics()) {
+            long[] counters = progress.get(epic.getId());
+            result.put(epic.getId(), counters == null ? 0.0 : (double) counters[0] / counters[1]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Системный. Для раскладки задачи по дням, повторяющейся - по каждому повторению.
+     */
+    private static void addMinutesPerDay(Map<Long, Long> acc, Task task) {
+        int count = task instanceof RecurringTask ? ((RecurringTask) task).getCount() : 1;
+        for (int index = 0; index < count; index++) {
+            long start = index == 0 ? task.getStartMinute() : ((RecurringTask) task).getOccurrenceStart(index);
+            DailyWorkload.forEachDay(start, start + task.getDuration(),
+                    (day, minutes) -> acc.merge(day, (long) minutes, Long::sum));
+        }
+    }
+
+    /**
+     * Системный. Параллельный поток только для больших списков: на маленьких разбиение дороже подсчета.
+     */
+    private <T> Stream<T> stream(List<T> tasks) {
+        return tasks.size() >= parallelThreshold ? tasks.parallelStream() : tasks.stream();
+    }
+}
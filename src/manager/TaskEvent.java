@@ -0,0 +1,73 @@
+package manager;
+
+import model.Task;
+import model.TaskTypes;
+
+/**
+ * Событие изменения задачи.
+ * До изменения - null для добавленной задачи, после изменения - null для удаленной.
+ * Задачи в событии - замороженные копии: менеджер меняет свои задачи на месте,
+ * а подписчик читает событие в своем потоке позже.
+ */
+public final class TaskEvent {
+
+    public enum Kind {
+        ADDED,
+        UPDATED,
+        REMOVED
+    }
+
+    private final long sequence;
+    private final Kind kind;
+    private final TaskTypes type;
+    private final int id;
+    private final Task before;
+    private final Task after;
+
+    TaskEvent(long sequence, Kind kind, Task before, Task after) {
+        Task task = after != null ? after : before;
+        this.sequence = sequence;
+        this.kind = kind;
+        this.type = task.getType();
+        this.id = task.getId();
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * Порядковый номер события. Пропуск номеров у подписчика означает потерянные события.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public TaskTypes getType() {
+        return type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Task getBefore() {
+        return before;
+    }
+
+    public Task getAfter() {
+        return after;
+    }
+
+    @Override
+    public String toString() {
+        return "manager.TaskEvent{" +
+                "sequence=" + sequence +
+                ", kind=" + kind +
+                ", type=" + type +
+                ", id=" + id +
+                '}';
+    }
+}
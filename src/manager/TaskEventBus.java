@@ -0,0 +1,107 @@
+package manager;
+
+import model.Task;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронная доставка событий изменения задач.
+ * События пишутся в общий кольцевой буфер без блокировок, у каждого подписчика свой поток и свой курсор.
+ * Запись никогда не ждет подписчиков: отставший больше чем на размер буфера подписчик
+ * теряет самые старые события и видит пропуск в номерах.
+ * Публикация - из одного потока записи: менеджер вызывает ее внутри своих изменений.
+ */
+class TaskEventBus {
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private final AtomicReferenceArray<TaskEvent> ring;
+    private final int mask;
+    private final AtomicLong published = new AtomicLong();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    TaskEventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    TaskEventBus(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Размер буфера событий должен быть степенью двойки: " + capacity);
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Опубликовать событие и разбудить подписчиков.
+     */
+    void publish(TaskEvent.Kind kind, Task before, Task after) {
+        long sequence = published.get();
+        ring.set((int) (sequence & mask), new TaskEvent(sequence, kind, before, after));
+        published.lazySet(sequence + 1);
+        for (Subscriber subscriber : subscribers) {
+            LockSupport.unpark(subscriber.thread);
+        }
+    }
+
+    void subscribe(TaskEventListener listener) {
+        Subscriber subscriber = new Subscriber(listener, published.get());
+        subscribers.add(subscriber);
+        subscriber.thread.start();
+    }
+
+    void unsubscribe(TaskEventListener listener) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.listener == listener) {
+                subscribers.remove(subscriber);
+                subscriber.running = false;
+                LockSupport.unpark(subscriber.thread);
+            }
+        }
+    }
+
+    /**
+     * Подписчик: поток доставки читает буфер со своего курсора.
+     */
+    private class Subscriber implements Runnable {
+        final TaskEventListener listener;
+        final Thread thread;
+        volatile boolean running = true;
+        private long cursor;
+
+        Subscriber(TaskEventListener listener, long cursor) {
+            this.listener = listener;
+            this.cursor = cursor;
+            this.thread = new Thread(this, "task-events");
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                if (cursor == published.get()) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                TaskEvent event = ring.get((int) (cursor & mask));
+                if (event == null || event.getSequence() != cursor) {
+                    cursor = Math.max(cursor + 1, published.get() - ring.length());
+                    continue;
+                }
+                cursor++;
+                try {
+                    listener.onEvent(event);
+                } catch (RuntimeException e) {
+                    System.out.println("Ошибка в подписчике на события: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
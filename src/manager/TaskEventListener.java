@@ -0,0 +1,13 @@
+package manager;
+
+/**
+ * Подписчик на изменения задач.
+ */
+@FunctionalInterface
+public interface TaskEventListener {
+
+    /**
+     * Обработать событие. Вызывается в потоке доставки подписчика.
+     */
+    void onEvent(TaskEvent event);
+}
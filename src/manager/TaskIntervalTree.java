@@ -0,0 +1,348 @@
+package manager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Интервальное дерево задач по времени начала и окончания.
+ * Узлы упорядочены по (началу, id) и хранят максимальное окончание в поддереве,
+ * поэтому поиск пересечения занимает O(log n + k).
+ * Узел - это id задачи: поля узлов лежат в массивах по id, объектов на задачу нет.
+ */
+class TaskIntervalTree {
+    static final int NOT_FOUND = Integer.MIN_VALUE;
+    private static final int NIL = -1;
+
+    private int root = NIL;
+    private long[] starts = new long[0];
+    private long[] finishes = new long[0];
+    private long[] maxFinishes = new long[0];
+    private int[] lefts = new int[0];
+    private int[] rights = new int[0];
+    private byte[] heights = new byte[0];   // 0 - узла нет
+    private int size;
+    private int modCount;
+
+    /**
+     * Перевод времени в ключ дерева (секунды от эпохи).
+     */
+    static long toKey(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime toTime(long key) {
+        return LocalDateTime.ofEpochSecond(key, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Добавить интервал задачи. Старый интервал с тем же id заменяется.
+     */
+    void add(int id, long start, long finish) {
+        remove(id);
+        grow(id);
+        starts[id] = start;
+        finishes[id] = finish;
+        maxFinishes[id] = finish;
+        lefts[id] = NIL;
+        rights[id] = NIL;
+        heights[id] = 1;
+        root = insert(root, id);
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Удалить интервал задачи.
+     */
+    void remove(int id) {
+        if (contains(id)) {
+            root = delete(root, starts[id], id);
+            heights[id] = 0;
+            size--;
+            modCount++;
+        }
+    }
+
+    boolean contains(int id) {
+        return id >= 0 && id < heights.length && heights[id] != 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        root = NIL;
+        Arrays.fill(heights, (byte) 0);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Идентификаторы задач в порядке (начало, id).
+     */
+    PrimitiveIterator.OfInt iterator() {
+        return new InOrderIterator();
+    }
+
+    private class InOrderIterator implements PrimitiveIterator.OfInt {
+        private final int[] stack = new int[Byte.MAX_VALUE];
+        private int depth;
+        private final int expectedModCount = modCount;
+
+        InOrderIterator() {
+            pushLeft(root);
+        }
+
+        private void pushLeft(int node) {
+            while (node != NIL) {
+                stack[depth++] = node;
+                node = lefts[node];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            int node = stack[--depth];
+            pushLeft(rights[node]);
+            return node;
+        }
+    }
+
+    /**
+     * Найти первую по времени начала задачу, пересекающую [start, finish).
+     *
+     * @return id задачи или NOT_FOUND
+     */
+    int findOverlap(long start, long finish, int excludeId) {
+        return findOverlap(start, finish, id -> id == excludeId);
+    }
+
+    /**
+     * Найти первую по времени начала задачу, пересекающую [start, finish), пропуская задачи из excluded.
+     *
+     * @return id задачи или NOT_FOUND
+     */
+    int findOverlap(long start, long finish, IntPredicate excluded) {
+        int node = findOverlap(root, start, finish, excluded);
+        return node == NIL ? NOT_FOUND : node;
+    }
+
+    private int findOverlap(int node, long start, long finish, IntPredicate excluded) {
+        if (node == NIL || maxFinishes[node] <= start) {
+            return NIL;
+        }
+        int found = findOverlap(lefts[node], start, finish, excluded);
+        if (found != NIL) {
+            return found;
+        }
+        if (starts[node] >= finish) {
+            return NIL;
+        }
+        if (!excluded.test(node) && overlaps(node, start, finish)) {
+            return node;
+        }
+        return findOverlap(rights[node], start, finish, excluded);
+    }
+
+    /**
+     * Найти самое раннее начало не раньше notBefore, с которого свободен интервал длины length.
+     * Каждый шаг перескакивает на окончание ближайшей мешающей задачи.
+     */
+    long findFreeSlot(long notBefore, long length) {
+        long candidate = notBefore;
+        IntPredicate none = id -> false;
+        int node = findOverlap(root, candidate, candidate + length, none);
+        while (node != NIL) {
+            candidate = finishes[node];
+            node = findOverlap(root, candidate, candidate + length, none);
+        }
+        return candidate;
+    }
+
+    /**
+     * Все задачи, пересекающие [start, finish), в порядке (начало, id).
+     */
+    void forEachOverlap(long start, long finish, IntConsumer action) {
+        forEachOverlap(root, start, finish, action);
+    }
+
+    private void forEachOverlap(int node, long start, long finish, IntConsumer action) {
+        if (node == NIL || maxFinishes[node] <= start) {
+            return;
+        }
+        forEachOverlap(lefts[node], start, finish, action);
+        if (starts[node] >= finish) {
+            return;
+        }
+        if (overlaps(node, start, finish)) {
+            action.accept(node);
+        }
+        forEachOverlap(rights[node], start, finish, action);
+    }
+
+    /**
+     * Все задачи, начинающиеся в [from, to), в порядке (начало, id).
+     */
+    void forEachStartingBetween(long from, long to, IntConsumer action) {
+        forEachStartingBetween(root, from, to, action);
+    }
+
+    private void forEachStartingBetween(int node, long from, long to, IntConsumer action) {
+        if (node == NIL) {
+            return;
+        }
+        if (starts[node] >= from) {
+            forEachStartingBetween(lefts[node], from, to, action);
+            if (starts[node] < to) {
+                action.accept(node);
+            }
+        }
+        if (starts[node] < to) {
+            forEachStartingBetween(rights[node], from, to, action);
+        }
+    }
+
+    private boolean overlaps(int node, long start, long finish) {
+        return starts[node] < finish && start < finishes[node];
+    }
+
+    private int compare(long start, int id, int node) {
+        if (start != starts[node]) {
+            return start < starts[node] ? -1 : 1;
+        }
+        return Integer.compare(id, node);
+    }
+
+    private int insert(int node, int newNode) {
+        if (node == NIL) {
+            return newNode;
+        }
+        if (compare(starts[newNode], newNode, node) < 0) {
+            lefts[node] = insert(lefts[node], newNode);
+        } else {
+            rights[node] = insert(rights[node], newNode);
+        }
+        return balance(node);
+    }
+
+    private int delete(int node, long start, int id) {
+        if (node == NIL) {
+            return NIL;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            lefts[node] = delete(lefts[node], start, id);
+        } else if (cmp > 0) {
+            rights[node] = delete(rights[node], start, id);
+        } else {
+            if (lefts[node] == NIL) {
+                return rights[node];
+            }
+            if (rights[node] == NIL) {
+                return lefts[node];
+            }
+            int min = rights[node];
+            while (lefts[min] != NIL) {
+                min = lefts[min];
+            }
+            rights[min] = deleteMin(rights[node]);
+            lefts[min] = lefts[node];
+            return balance(min);
+        }
+        return balance(node);
+    }
+
+    private int deleteMin(int node) {
+        if (lefts[node] == NIL) {
+            return rights[node];
+        }
+        lefts[node] = deleteMin(lefts[node]);
+        return balance(node);
+    }
+
+    private int height(int node) {
+        return node == NIL ? 0 : heights[node];
+    }
+
+    private void update(int node) {
+        heights[node] = (byte) (Math.max(height(lefts[node]), height(rights[node])) + 1);
+        long maxFinish = finishes[node];
+        if (lefts[node] != NIL && maxFinishes[lefts[node]] > maxFinish) {
+            maxFinish = maxFinishes[lefts[node]];
+        }
+        if (rights[node] != NIL && maxFinishes[rights[node]] > maxFinish) {
+            maxFinish = maxFinishes[rights[node]];
+        }
+        maxFinishes[node] = maxFinish;
+    }
+
+    private int balance(int node) {
+        update(node);
+        int factor = height(lefts[node]) - height(rights[node]);
+        if (factor > 1) {
+            if (height(lefts[lefts[node]]) < height(rights[lefts[node]])) {
+                lefts[node] = rotateLeft(lefts[node]);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(rights[rights[node]]) < height(lefts[rights[node]])) {
+                rights[node] = rotateRight(rights[node]);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private int rotateRight(int node) {
+        int left = lefts[node];
+        lefts[node] = rights[left];
+        rights[left] = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private int rotateLeft(int node) {
+        int right = rights[node];
+        rights[node] = lefts[right];
+        lefts[right] = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    /**
+     * Системный. Для места под id: массивы растут вдвое.
+     */
+    private void grow(int id) {
+        if (id < heights.length) {
+            return;
+        }
+        int length = Math.max(id + 1, heights.length * 2);
+        starts = Arrays.copyOf(starts, length);
+        finishes = Arrays.copyOf(finishes, length);
+        maxFinishes = Arrays.copyOf(maxFinishes, length);
+        lefts = Arrays.copyOf(lefts, length);
+        rights = Arrays.copyOf(rights, length);
+        heights = Arrays.copyOf(heights, length);
+    }
+}
@@ -2,11 +2,18 @@ package manager;
 
 import exceptions.ManagerSaveException;
 import model.Epic;
+import model.Status;
 import model.SubTask;
 import model.Task;
+import model.TaskTypes;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 
 /**
  * Интерфейс менеджера задач.
@@ -113,6 +120,168 @@ public interface TaskManager<T extends Task> {
      */
     void removeEpic(int id);
 
+    /**
+     * Страница задач указанного типа: не больше limit задач с id больше afterId, по возрастанию id.
+     * Курсор следующей страницы - id последней задачи страницы.
+     */
+    List<Task> getPage(TaskTypes type, int afterId, int limit);
+
+    /**
+     * Обход задач указанного типа по возрастанию id, без копирования в список
+     */
+    Iterator<Task> iterate(TaskTypes type);
+
+    /**
+     * Удаление всех задач
+     */
+    void clearTasks();
+
+    /**
+     * Удаление всех эпиков вместе с их подзадачами
+     */
+    void clearEpics();
+
+    /**
+     * Удаление всех подзадач, эпики остаются пустыми
+     */
+    void clearSubTasks();
+
+    /**
+     * Пакетное создание задач, подзадач и эпиков в порядке передачи.
+     * Пересечения проверяются для всего пакета до изменений, эпики пересчитываются по одному разу.
+     *
+     * @return идентификаторы в порядке передачи
+     */
+    List<Integer> addAll(Task... tasks);
+
+    /**
+     * Пакетное обновление задач, подзадач и эпиков.
+     * Пересечения проверяются для всего пакета до изменений, эпики пересчитываются по одному разу.
+     */
+    void updateAll(Task... tasks);
+
+    /**
+     * Пакетное удаление по идентификаторам любого типа. Несуществующие идентификаторы пропускаются.
+     */
+    void removeAll(int... ids);
+
+    /**
+     * Задача taskId не может начаться, пока не завершится blockedById.
+     * Зависимость, которая образует цикл, не добавляется.
+     */
+    void addDependency(int taskId, int blockedById);
+
+    /**
+     * Удаление зависимости taskId от blockedById
+     */
+    void removeDependency(int taskId, int blockedById);
+
+    /**
+     * Самое раннее начало задачи по зависимостям, в минутах от начала проекта
+     */
+    long getEarliestStart(int taskId);
+
+    /**
+     * Критический путь: цепочка зависимых задач, которая завершается позже всех
+     */
+    List<Task> getCriticalPath();
+
+    /**
+     * Поиск задач всех типов по началам слов в названии и описании, все слова запроса должны совпасть
+     */
+    List<Task> search(String query);
+
+    /**
+     * Задачи всех типов с указанным статусом
+     */
+    List<Task> getByStatus(Status status);
+
+    /**
+     * Задачи указанного типа с указанным статусом
+     */
+    List<Task> getByStatus(TaskTypes type, Status status);
+
+    /**
+     * Количество задач всех типов с указанным статусом
+     */
+    int countByStatus(Status status);
+
+    /**
+     * Количество задач указанного типа с указанным статусом
+     */
+    int countByStatus(TaskTypes type, Status status);
+
+    /**
+     * Колонки канбан-доски: задачи указанного типа по статусам
+     */
+    Map<Status, List<Task>> getKanbanColumns(TaskTypes type);
+
+    /**
+     * Задачи и подзадачи, начинающиеся в интервале [from, to), по времени начала
+     */
+    List<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Задачи и подзадачи, которые выполняются в указанный момент
+     */
+    List<Task> getTasksActiveAt(LocalDateTime time);
+
+    /**
+     * Самое раннее время начала не раньше notBefore, на которое можно поставить задачу
+     * указанной продолжительности (в минутах) без пересечений
+     */
+    LocalDateTime findFreeSlot(int duration, LocalDateTime notBefore);
+
+    /**
+     * Лимит загрузки в минутах на календарный день, 0 - без лимита.
+     * Действует на добавление и обновление задач, уже поставленные задачи не проверяются
+     */
+    void setDailyCapacity(int minutes);
+
+    int getDailyCapacity();
+
+    /**
+     * Сколько минут задач и подзадач приходится на день
+     */
+    int getDailyLoad(LocalDate day);
+
+    /**
+     * Загрузка занятых дней с from по to включительно, по возрастанию дат
+     */
+    SortedMap<LocalDate, Integer> getDailyLoads(LocalDate from, LocalDate to);
+
+    /**
+     * Подписка на изменения задач. События доставляются асинхронно, в отдельном потоке подписчика,
+     * и не задерживают запись.
+     */
+    void subscribe(TaskEventListener listener);
+
+    /**
+     * Отмена подписки на изменения задач
+     */
+    void unsubscribe(TaskEventListener listener);
+
+    /**
+     * Неизменяемый снимок всех задач на текущую версию.
+     * Пока нет изменений, возвращается один и тот же снимок.
+     */
+    TaskSnapshot getSnapshot();
+
+    /**
+     * Агрегаты по текущему снимку: статусы, минуты по дням, выполнение эпиков
+     */
+    TaskAnalytics getAnalytics();
+
+    /**
+     * Не больше limit самых просматриваемых за последнее время задач: id и оценка просмотров, по убыванию
+     */
+    Map<Integer, Integer> getTopViewed(int limit);
+
+    /**
+     * Оценка числа недавних просмотров задачи
+     */
+    int getViewEstimate(int id);
+
     /**
      * Получить историю
      */
@@ -0,0 +1,110 @@
+package manager;
+
+import model.Epic;
+import model.RecurringTask;
+import model.SubTask;
+import model.Task;
+import model.TaskTypes;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Неизменяемый снимок задач менеджера на момент одной версии.
+ * В снимке копии задач, которые менеджер больше не меняет. Списки и множество по приоритету -
+ * неизменяемые деревья: менеджер при записи строит новую версию, разделяя с прежней все,
+ * что не изменилось, поэтому снимок публикуется без копирования и читается без блокировки.
+ */
+public final class TaskSnapshot {
+    private final long version;
+    private final List<Task> tasks;
+    private final List<Epic> epics;
+    private final List<SubTask> subTasks;
+    private final Set<Task> prioritizedTasks;
+
+    TaskSnapshot(long version, List<Task> tasks, List<Epic> epics, List<SubTask> subTasks,
+                 Set<Task> prioritizedTasks) {
+        this.version = version;
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subTasks = subTasks;
+        this.prioritizedTasks = prioritizedTasks;
+    }
+
+    /**
+     * Копия эпика вместе со списком подзадач.
+     */
+    static Epic copy(Epic epic) {
+        Epic copy = new Epic(epic.getId(), epic.getName(), epic.getDescription(), epic.getStatus());
+        copy.setSubTasks(epic.getSubTaskIds());
+        copy.setStartMinute(epic.getStartMinute());
+        copy.setDuration(epic.getDuration());
+        copy.setFinishMinute(epic.getFinishMinute());
+        return copy;
+    }
+
+    /**
+     * Замороженная копия задачи для снимка и событий: менеджер свою задачу меняет на месте, копию - никогда.
+     * Сеттеры копии бросают исключение, список блокирующих задач только для чтения.
+     */
+    static Task freeze(Task task) {
+        Task copy;
+        if (task instanceof Epic) {
+            copy = copy((Epic) task);
+        } else if (task instanceof SubTask) {
+            copy = new SubTask(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
+                    ((SubTask) task).getEpicId());
+        } else if (task instanceof RecurringTask) {
+            RecurringTask series = (RecurringTask) task;
+            copy = new RecurringTask(task.getId(), task.getName(), task.getDescription(), task.getStatus(), null,
+                    task.getDuration(), series.getPeriod(), series.getCount());
+        } else {
+            copy = new Task(task.getId(), task.getName(), task.getDescription(), task.getStatus());
+        }
+        copy.setStartMinute(task.getStartMinute());
+        copy.setDuration(task.getDuration());
+        copy.setBlockedBy(List.copyOf(task.getBlockedBy()));
+        copy.freeze();
+        return copy;
+    }
+
+    /**
+     * Номер версии менеджера, с которой снят снимок.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public List<Epic> getEpics() {
+        return epics;
+    }
+
+    public List<SubTask> getSubTasks() {
+        return subTasks;
+    }
+
+    /**
+     * Задачи указанного типа по возрастанию id.
+     */
+    public List<? extends Task> getByType(TaskTypes type) {
+        switch (type) {
+            case EPIC:
+                return epics;
+            case SUBTASK:
+                return subTasks;
+            default:
+                return tasks;
+        }
+    }
+
+    /**
+     * Задачи и подзадачи по приоритету, задачи без времени - в конце.
+     */
+    public Set<Task> getPrioritizedTasks() {
+        return prioritizedTasks;
+    }
+}
@@ -0,0 +1,81 @@
+package manager;
+
+import model.Task;
+import model.TaskTypes;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Интерфейс хранилища задач по идентификатору.
+ * В одной ячейке хранится одна задача любого типа.
+ */
+interface TaskStore {
+
+    /**
+     * Получить задачу любого типа
+     *
+     * @return задача или null
+     */
+    Task get(int id);
+
+    /**
+     * Получить задачу, если в ячейке лежит задача указанного типа
+     *
+     * @return задача или null
+     */
+    <T extends Task> T get(int id, TaskTypes type);
+
+    /**
+     * Тип задачи в ячейке
+     *
+     * @return тип или null, если ячейка пуста
+     */
+    TaskTypes typeOf(int id);
+
+    /**
+     * Положить задачу в ячейку с ее идентификатором
+     *
+     * @return задача, которая лежала в ячейке, или null
+     */
+    Task put(Task task);
+
+    /**
+     * Сохранить изменения задачи, которая уже лежит в ячейке.
+     * Хранилище, которое держит сами объекты, видит изменения и так.
+     */
+    void writeBack(Task task);
+
+    /**
+     * Освободить ячейку
+     *
+     * @return удаленная задача или null
+     */
+    Task remove(int id);
+
+    /**
+     * Количество задач указанного типа
+     */
+    int size(TaskTypes type);
+
+    /**
+     * Все задачи указанного типа по возрастанию id
+     */
+    <T extends Task> ArrayList<T> values(TaskTypes type);
+
+    /**
+     * Не больше limit задач указанного типа с id больше afterId, по возрастанию id
+     */
+    <T extends Task> ArrayList<T> values(TaskTypes type, int afterId, int limit);
+
+    /**
+     * Ленивый обход задач указанного типа по возрастанию id, без копирования.
+     * Итератор не фиксирует состояние: изменения во время обхода могут быть видны.
+     */
+    <T extends Task> Iterator<T> iterator(TaskTypes type);
+
+    /**
+     * Очистить хранилище
+     */
+    void clear();
+}
@@ -1,27 +1,115 @@
 package model;
 
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 /**
  * Класс эпиков.
+ * Подзадачи хранятся массивом id точной длины: при изменении массив заменяется новым,
+ * поэтому один массив можно отдавать нескольким копиям эпика.
  */
 public class Epic extends Task {
-    private ArrayList<Integer> subTasks;
+    private static final int[] NO_SUBTASKS = new int[0];
+
+    private int[] subTasks = NO_SUBTASKS;
+    @SerializedName("finishTime")
+    @JsonAdapter(value = EpochMinutes.Adapter.class, nullSafe = false)
+    private long finishMinute = EpochMinutes.NONE;
 
     public Epic(int id, String name, String description, Status status) {
         super(id, name, description, status, LocalDateTime.now(), 0);
-        this.subTasks = new ArrayList<>();
+        this.finishMinute = startMinute;
+    }
+
+    /**
+     * Для Gson.
+     */
+    private Epic() {
+    }
+
+    /**
+     * Подзадачи эпика, только для чтения.
+     */
+    public List<Integer> getSubTasks() {
+        final int[] ids = getSubTaskIds();
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return ids[index];
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+
+    /**
+     * Массив id подзадач. Массив не изменяется - при изменении эпика он заменяется новым.
+     */
+    public int[] getSubTaskIds() {
+        return subTasks == null ? NO_SUBTASKS : subTasks;
+    }
+
+    public void setSubTasks(int[] subTasks) {
+        checkNotFrozen();
+        this.subTasks = subTasks == null ? NO_SUBTASKS : subTasks;
     }
 
+    public int getSubTaskCount() {
+        return getSubTaskIds().length;
+    }
+
+    public void addSubTask(int subTaskId) {
+        checkNotFrozen();
+        int[] ids = getSubTaskIds();
+        int[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[ids.length] = subTaskId;
+        subTasks = grown;
+    }
+
+    public void removeSubTask(int subTaskId) {
+        checkNotFrozen();
+        int[] ids = getSubTaskIds();
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == subTaskId) {
+                int[] shrunk = new int[ids.length - 1];
+                System.arraycopy(ids, 0, shrunk, 0, i);
+                System.arraycopy(ids, i + 1, shrunk, i, ids.length - i - 1);
+                subTasks = shrunk;
+                return;
+            }
+        }
+    }
+
+    public void clearSubTasks() {
+        checkNotFrozen();
+        subTasks = NO_SUBTASKS;
+    }
+
+    /**
+     * У эпика окончание хранится: это окончание самой поздней подзадачи, а не начало плюс сумма.
+     */
+    @Override
+    public long getFinishMinute() {
+        return finishMinute;
+    }
 
-    public ArrayList<Integer> getSubTasks() {
-        return subTasks;
+    public void setFinishMinute(long finishMinute) {
+        checkNotFrozen();
+        this.finishMinute = finishMinute;
     }
 
-    public void setSubTasks(ArrayList<Integer> subTasks) {
-        this.subTasks = subTasks;
+    public void setFinishTime(LocalDateTime finishTime) {
+        checkNotFrozen();
+        this.finishMinute = EpochMinutes.of(finishTime);
     }
 
     public TaskTypes getType() {
@@ -48,11 +136,11 @@ public class Epic extends Task {
         if (o == null || getClass() != o.getClass()) return false;
         if (!super.equals(o)) return false;
         Epic epic = (Epic) o;
-        return Objects.equals(subTasks, epic.subTasks);
+        return Arrays.equals(getSubTaskIds(), epic.getSubTaskIds());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), subTasks);
+        return Objects.hash(super.hashCode(), Arrays.hashCode(getSubTaskIds()));
     }
-}
\ No newline at end of file
+}
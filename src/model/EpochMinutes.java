@@ -0,0 +1,65 @@
+package model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Время задач в минутах от эпохи (UTC).
+ * Внутри модели время хранится в long, LocalDateTime создается только при чтении.
+ */
+public final class EpochMinutes {
+    /**
+     * Отсутствие времени.
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
+    private EpochMinutes() {
+    }
+
+    /**
+     * Перевод времени в минуты, секунды отбрасываются.
+     */
+    public static long of(LocalDateTime time) {
+        return time == null ? NONE : Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60L);
+    }
+
+    public static LocalDateTime toTime(long minutes) {
+        return minutes == NONE ? null : LocalDateTime.ofEpochSecond(minutes * 60L, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Адаптер для полей времени: в JSON время остается строкой ISO, как у LocalDateTime.
+     */
+    public static class Adapter extends TypeAdapter<Long> {
+        private final DateTimeFormatter fmt = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+        @Override
+        public void write(JsonWriter jsonWriter, Long minutes) throws IOException {
+            if (minutes == null || minutes == NONE) {
+                jsonWriter.value("null");
+                return;
+            }
+            jsonWriter.value(toTime(minutes).format(fmt));
+        }
+
+        @Override
+        public Long read(JsonReader jsonReader) throws IOException {
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+                return NONE;
+            }
+            final String text = jsonReader.nextString();
+            if (text.equals("null")) {
+                return NONE;
+            }
+            return of(LocalDateTime.parse(text, fmt));
+        }
+    }
+}
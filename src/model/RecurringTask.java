@@ -0,0 +1,90 @@
+package model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Класс повторяющихся задач.
+ * Хранится одна задача с правилом: первое начало, продолжительность, период и число повторений.
+ * Отдельные повторения не хранятся, они вычисляются, когда нужны.
+ */
+public class RecurringTask extends Task {
+    private int period;
+    private int count;
+
+    /**
+     * @param period минуты между началами соседних повторений
+     * @param count  число повторений, включая первое
+     */
+    public RecurringTask(int id, String name, String description, Status status, LocalDateTime startTime,
+                         int duration, int period, int count) {
+        super(id, name, description, status, startTime, duration);
+        this.period = period;
+        this.count = count;
+    }
+
+    /**
+     * Для Gson.
+     */
+    private RecurringTask() {
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Начало повторения с номером index (с нуля) в минутах от эпохи.
+     */
+    public long getOccurrenceStart(int index) {
+        return startMinute + (long) index * period;
+    }
+
+    /**
+     * Окончание последнего повторения в минутах от эпохи.
+     */
+    public long getLastFinishMinute() {
+        return getOccurrenceStart(count - 1) + duration;
+    }
+
+    /**
+     * Повторение как обычная задача с тем же id. Объект создается заново и нигде не хранится.
+     */
+    public Task getOccurrence(int index) {
+        Task occurrence = new Task(getId(), getName(), getDescription(), getStatus());
+        occurrence.setStartMinute(getOccurrenceStart(index));
+        occurrence.setDuration(duration);
+        return occurrence;
+    }
+
+    @Override
+    public String toString() {
+        return "model.RecurringTask{" +
+                "id=" + this.getId() +
+                ", name='" + this.getName() + '\'' +
+                ", description='" + this.getDescription() + '\'' +
+                ", status='" + this.getStatus() + '\'' +
+                ", startTime=" + this.getStartTime() +
+                ", duration=" + this.getDuration() +
+                ", period=" + period +
+                ", count=" + count +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        RecurringTask that = (RecurringTask) o;
+        return period == that.period && count == that.count;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * super.hashCode() + period) + count;
+    }
+}
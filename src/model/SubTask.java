@@ -6,7 +6,7 @@ import java.time.LocalDateTime;
  * Класс подзадач.
  */
 public class SubTask extends Task {
-    private static int epicId;
+    private int epicId;
 
     public SubTask(int id, String name, String description, Status status, int epicId) {
         super(id, name, description, status);
@@ -18,7 +18,13 @@ public class SubTask extends Task {
         this.epicId = epicId;
     }
 
-    public static int getEpicId() {
+    /**
+     * Для Gson.
+     */
+    private SubTask() {
+    }
+
+    public int getEpicId() {
         return epicId;
     }
 
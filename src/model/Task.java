@@ -1,10 +1,16 @@
 package model;
 
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
  * Класс Задач.
+ * Время начала хранится в минутах от эпохи, окончание вычисляется из продолжительности.
  */
 public class Task {
 
@@ -12,18 +18,20 @@ public class Task {
     private String name;
     private String description;
     private Status status;
-    protected LocalDateTime startTime;
+    @SerializedName("startTime")
+    @JsonAdapter(value = EpochMinutes.Adapter.class, nullSafe = false)
+    protected long startMinute = EpochMinutes.NONE;
     protected int duration;
-    protected LocalDateTime finishTime;
+    private List<Integer> blockedBy = new ArrayList<>();
+    private transient boolean frozen;
 
     public Task(int id, String name, String description, Status status, LocalDateTime startTime, int duration) {
         this.id = id;
         this.name = name;
         this.description = description;
         this.status = status;
-        this.startTime = startTime;
+        this.startMinute = EpochMinutes.of(startTime);
         this.duration = duration;
-        this.finishTime = startTime.plusMinutes(duration);
     }
 
     public Task(int id, String name, String description, Status status) {
@@ -36,20 +44,42 @@ public class Task {
     public Task(String s, String name) {
     }
 
-    public LocalDateTime getFinishTime() {
-        return finishTime;
+    /**
+     * Для Gson: без конструктора поля остались бы без начальных значений.
+     */
+    protected Task() {
     }
 
-    public void setFinishTime(LocalDateTime finishTime) {
-        this.finishTime = finishTime;
+    public LocalDateTime getFinishTime() {
+        return EpochMinutes.toTime(getFinishMinute());
     }
 
     public LocalDateTime getStartTime() {
-        return startTime;
+        return EpochMinutes.toTime(startMinute);
     }
 
     public void setStartTime(LocalDateTime startTime) {
-        this.startTime = startTime;
+        checkNotFrozen();
+        this.startMinute = EpochMinutes.of(startTime);
+    }
+
+    /**
+     * Начало в минутах от эпохи или EpochMinutes.NONE.
+     */
+    public long getStartMinute() {
+        return startMinute;
+    }
+
+    public void setStartMinute(long startMinute) {
+        checkNotFrozen();
+        this.startMinute = startMinute;
+    }
+
+    /**
+     * Окончание в минутах от эпохи или EpochMinutes.NONE.
+     */
+    public long getFinishMinute() {
+        return startMinute == EpochMinutes.NONE ? EpochMinutes.NONE : startMinute + duration;
     }
 
     public int getDuration() {
@@ -57,10 +87,12 @@ public class Task {
     }
 
     public void setDuration(int duration) {
+        checkNotFrozen();
         this.duration = duration;
     }
 
     public void setId(int id) {
+        checkNotFrozen();
         this.id = id;
     }
 
@@ -81,13 +113,48 @@ public class Task {
     }
 
     public void setStatus(Status status) {
+        checkNotFrozen();
         this.status = status;
     }
 
+    /**
+     * Идентификаторы задач, которые должны завершиться до начала этой.
+     * У задачи из снимка список только для чтения.
+     */
+    public List<Integer> getBlockedBy() {
+        if (blockedBy == null) {
+            blockedBy = new ArrayList<>();
+        }
+        return blockedBy;
+    }
+
+    public void setBlockedBy(List<Integer> blockedBy) {
+        checkNotFrozen();
+        this.blockedBy = blockedBy;
+    }
+
     public TaskTypes getType() {
         return TaskTypes.TASK;
     }
 
+    /**
+     * Запретить изменение задачи: сеттеры замороженной задачи бросают UnsupportedOperationException.
+     * Так менеджер отдает копии в снимках и событиях.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    protected void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Задача " + id + " заморожена и только для чтения");
+        }
+    }
+
     @Override
     public String toString() {
         return "model.Task{" +
@@ -95,9 +162,9 @@ public class Task {
                 ", name='" + name + '\'' +
                 ", description='" + description + '\'' +
                 ", status='" + status + '\'' +
-                ", startTime=" + startTime +
+                ", startTime=" + getStartTime() +
                 ", duration=" + duration +
-                ", finishTime=" + finishTime +
+                ", finishTime=" + getFinishTime() +
                 '}';
     }
 
@@ -0,0 +1,63 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessStatisticsTest {
+
+    @Test
+    void topViewedFollowsDecayedFrequency() {
+        InMemoryHistoryManagerTest.ManualClock clock = new InMemoryHistoryManagerTest.ManualClock();
+        AccessStatistics statistics = new AccessStatistics(Duration.ofMinutes(15), 3, clock);
+        for (int i = 0; i < 40; i++) {
+            statistics.record(1);
+        }
+        for (int id = 100; id < 600; id++) {
+            statistics.record(id);
+        }
+        assertEquals(40, statistics.estimate(1));
+        assertEquals(1, statistics.getTopViewed(3).keySet().iterator().next());
+
+        clock.millis = Duration.ofMinutes(60).toMillis();
+        assertEquals(2, statistics.estimate(1));
+        for (int i = 0; i < 10; i++) {
+            statistics.record(2);
+        }
+        for (int i = 0; i < 5; i++) {
+            statistics.record(3);
+        }
+        assertEquals(List.of(2, 3, 1), List.copyOf(statistics.getTopViewed(3).keySet()));
+        assertEquals(Map.of(2, 10), statistics.getTopViewed(1));
+
+        statistics.remove(2);
+        assertEquals(List.of(3, 1), List.copyOf(statistics.getTopViewed(3).keySet()));
+        assertThrows(IllegalArgumentException.class, () -> statistics.getTopViewed(0));
+    }
+
+    @Test
+    void concurrentViewsAreAllCounted() throws InterruptedException {
+        AccessStatistics statistics = new AccessStatistics();
+        int threads = 8;
+        int views = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < views; i++) {
+                    statistics.record(7);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(threads * views, statistics.estimate(7));
+        assertEquals(Map.of(7, threads * views), statistics.getTopViewed(1));
+    }
+}
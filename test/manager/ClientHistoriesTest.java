@@ -0,0 +1,65 @@
+package manager;
+
+import model.Status;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientHistoriesTest {
+
+    @Test
+    void clientsHaveSeparateHistoriesAndIdleOnesAreEvicted() {
+        InMemoryHistoryManagerTest.ManualClock clock = new InMemoryHistoryManagerTest.ManualClock();
+        ClientHistories histories = new ClientHistories(2, 10, Duration.ofMinutes(10), clock);
+        Task first = new Task(1, "Задача 1", "desc", Status.NEW);
+        Task second = new Task(2, "Задача 2", "desc", Status.NEW);
+        Task third = new Task(3, "Задача 3", "desc", Status.NEW);
+        histories.add("alice", first);
+        histories.add("alice", second);
+        histories.add("alice", third);
+        histories.add("bob", first);
+        assertEquals(List.of(second, third), histories.getHistory("alice"));
+        assertEquals(List.of(first), histories.getHistory("bob"));
+        assertTrue(histories.getHistory("carol").isEmpty());
+
+        histories.remove(3);
+        assertEquals(List.of(second), histories.getHistory("alice"));
+
+        clock.millis = Duration.ofMinutes(8).toMillis();
+        histories.add("bob", second);
+        clock.millis = Duration.ofMinutes(14).toMillis();
+        histories.add("bob", third);
+        assertEquals(1, histories.size());
+        assertTrue(histories.getHistory("alice").isEmpty());
+        assertEquals(List.of(second, third), histories.getHistory("bob"));
+    }
+
+    @Test
+    void clientCountIsCappedByLeastRecentAccess() {
+        InMemoryHistoryManagerTest.ManualClock clock = new InMemoryHistoryManagerTest.ManualClock();
+        ClientHistories histories = new ClientHistories(2, 2, Duration.ofMinutes(10), clock);
+        Task first = new Task(1, "Задача 1", "desc", Status.NEW);
+        Task second = new Task(2, "Задача 2", "desc", Status.NEW);
+        histories.add("alice", first);
+        clock.millis = 1_000;
+        histories.add("bob", first);
+        clock.millis = 2_000;
+        histories.add("alice", second);
+        clock.millis = 3_000;
+        histories.add("carol", second);
+        assertEquals(2, histories.size());
+        assertTrue(histories.getHistory("bob").isEmpty());
+        assertEquals(List.of(first, second), histories.getHistory("alice"));
+
+        histories.removeAll(Set.of(1, 2));
+        assertTrue(histories.getHistory("alice").isEmpty());
+        assertTrue(histories.getHistory("carol").isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClientHistories(2, 0, Duration.ofMinutes(10), clock));
+    }
+}
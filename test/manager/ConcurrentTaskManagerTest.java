@@ -0,0 +1,212 @@
+package manager;
+
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+import model.TaskTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentTaskManagerTest extends ManagerTest<ConcurrentTaskManager> {
+    private static final int THREADS = 8;
+    private static final int SUBTASKS_PER_THREAD = 200;
+
+    @Override
+    protected ConcurrentTaskManager createManager() {
+        return Managers.getConcurrentTaskManager();
+    }
+
+    @BeforeEach
+    void initConcurrentTaskManager() {
+        manager = createManager();
+    }
+
+    @Test
+    void concurrentSubTaskWritesKeepEpicConsistent() throws InterruptedException {
+        Epic epic = new Epic(0, "Эпик", "Описание эпика", Status.NEW);
+        manager.addEpic(epic);
+        LocalDateTime base = LocalDateTime.of(2022, 8, 1, 0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            executor.submit(() -> {
+                for (int i = 0; i < SUBTASKS_PER_THREAD; i++) {
+                    int slot = thread * SUBTASKS_PER_THREAD + i;
+                    manager.addSubTask(new SubTask(0, "Подзадача " + slot, "Описание", Status.DONE,
+                            epic.getId(), base.plusMinutes(slot * 10L), 5));
+                    manager.getAllSubTasks();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        int total = THREADS * SUBTASKS_PER_THREAD;
+        Set<Integer> ids = new HashSet<>();
+        for (Task subTask : manager.getAllSubTasks()) {
+            ids.add(subTask.getId());
+        }
+        assertEquals(total, ids.size(), "id не должны повторяться");
+        assertEquals(total, manager.getSubTasksByEpic(epic.getId()).size());
+        assertEquals(total, manager.getPrioritizedTasks().size());
+        assertEquals(total * 5, epic.getDuration());
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(base, epic.getStartTime());
+    }
+
+    @Test
+    void concurrentViewsAreAllRecordedInHistory() throws Exception {
+        int tasksPerThread = 50;
+        for (int i = 0; i < THREADS * tasksPerThread; i++) {
+            manager.addTask(new Task(0, "Задача " + i, "Описание", Status.NEW));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            results.add(executor.submit(() -> {
+                for (int round = 0; round < 3; round++) {
+                    for (int i = 0; i < tasksPerThread; i++) {
+                        manager.getTask(thread * tasksPerThread + i + 1);
+                    }
+                    List<Task> history = manager.getHistory();
+                    assertEquals(history.size(), new HashSet<>(history).size(), "в истории нет повторов");
+                }
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        for (Future<?> result : results) {
+            result.get();
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : manager.getHistory()) {
+            ids.add(task.getId());
+        }
+        assertEquals(THREADS * tasksPerThread, ids.size());
+        manager.removeTask(1);
+        assertEquals(THREADS * tasksPerThread - 1, manager.getHistory().size());
+    }
+
+    @Test
+    void viewsRacingWithRemovalLeaveNoDeletedTasksInHistory() throws Exception {
+        int tasks = 600;
+        for (int i = 0; i < tasks; i++) {
+            manager.addTask(new Task(0, "Задача " + i, "Описание", Status.NEW));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        results.add(executor.submit(() -> {
+            for (int id = 1; id <= tasks; id += 2) {
+                manager.removeTask(id);
+            }
+        }));
+        for (int t = 1; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                for (int id = 1; id <= tasks; id++) {
+                    try {
+                        manager.getTask(id);
+                    } catch (IllegalArgumentException e) {
+                        // задачу уже удалили
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        for (Future<?> result : results) {
+            result.get();
+        }
+
+        for (Task task : manager.getHistory()) {
+            assertEquals(0, task.getId() % 2, "удаленная задача в истории: " + task.getId());
+        }
+        assertEquals(tasks / 2, manager.getHistory().size());
+    }
+
+    @Test
+    void readersTraverseIndexesWhileWritersRebuildThem() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2022, 8, 1, 0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < SUBTASKS_PER_THREAD; i++) {
+                    if (thread % 2 == 0) {
+                        int slot = thread * SUBTASKS_PER_THREAD + i;
+                        Task task = new Task(0, "Задача " + slot, "Описание " + i, Status.NEW,
+                                base.plusMinutes(slot * 10L), 5);
+                        manager.addTask(task);
+                        if (i % 3 == 0) {
+                            manager.removeTask(task.getId());
+                        }
+                    } else {
+                        manager.getTasksActiveAt(base.plusMinutes(i * 10L + 1));
+                        manager.findFreeSlot(5, base);
+                        manager.search("задача");
+                        manager.getDailyLoads(base.toLocalDate(), base.toLocalDate().plusDays(30));
+                        manager.getCriticalPath();
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        for (Future<?> result : results) {
+            result.get();
+        }
+        int writers = THREADS / 2;
+        int removedPerWriter = (SUBTASKS_PER_THREAD + 2) / 3;
+        assertEquals(writers * (SUBTASKS_PER_THREAD - removedPerWriter), manager.getAllTasks().size());
+    }
+
+    @Test
+    void analyticsReadsPublishedSnapshotWhileWritersRun() throws Exception {
+        int rounds = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            results.add(executor.submit(() -> {
+                long lastVersion = -1;
+                for (int i = 0; i < rounds; i++) {
+                    if (thread % 2 == 0) {
+                        Task task = new Task(0, "Задача " + i, "Описание", Status.DONE);
+                        manager.addTask(task);
+                        if (i % 2 == 0) {
+                            manager.removeTask(task.getId());
+                        }
+                    } else {
+                        TaskAnalytics analytics = manager.getAnalytics();
+                        assertTrue(analytics.getVersion() >= lastVersion, "версия снимка не убывает");
+                        lastVersion = analytics.getVersion();
+                        analytics.countByStatus();
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        for (Future<?> result : results) {
+            result.get();
+        }
+        assertEquals((long) manager.getAllTasks().size(),
+                manager.getAnalytics().countByStatus().get(TaskTypes.TASK).get(Status.DONE));
+    }
+}
@@ -1,5 +1,8 @@
 package manager;
 
+import model.RecurringTask;
+import model.Status;
+import model.SubTask;
 import model.Task;
 import org.junit.jupiter.api.Test;
 
@@ -10,11 +13,19 @@ import org.junit.jupiter.api.BeforeEach;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
 
 class FileBackedTasksManagerTest extends ManagerTest<FileBackedTasksManager> {
+    @Override
+    protected FileBackedTasksManager createManager() {
+        return new FileBackedTasksManager();
+    }
+
     @BeforeEach
     void initFileBackedTasksManager() {
-        manager = new FileBackedTasksManager();
+        manager = createManager();
     }
 
     @Test
@@ -27,4 +38,52 @@ class FileBackedTasksManagerTest extends ManagerTest<FileBackedTasksManager> {
         assertEquals(taskT, manager.getTask(1), "задачи разные");
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void dependenciesSurviveReload() throws IOException, InterruptedException {
+        File tasksDB = File.createTempFile("tasks", ".csv");
+        tasksDB.deleteOnExit();
+        manager = new FileBackedTasksManager(tasksDB, false);
+        super.init();
+        Task design = new Task(0, "Дизайн", "описание", Status.NEW, LocalDateTime.of(2022, 8, 7, 10, 0), 30);
+        manager.addTask(design);
+        manager.addDependency(subTask.getId(), task.getId());
+        manager.addDependency(subTask.getId(), design.getId());
+        manager.addDependency(design.getId(), task.getId());
+
+        FileBackedTasksManager loaded = FileBackedTasksManager.loadFromFile(tasksDB);
+        SubTask loadedSubTask = loaded.getSubTask(subTask.getId());
+        assertEquals(List.of(task.getId(), design.getId()), loadedSubTask.getBlockedBy());
+        assertEquals(List.of(task.getId()), loaded.getTask(design.getId()).getBlockedBy());
+        assertThrows(IllegalArgumentException.class, () -> loaded.addDependency(task.getId(), subTask.getId()));
+
+        loaded.removeTask(task.getId());
+        assertEquals(List.of(design.getId()), loaded.getSubTask(subTask.getId()).getBlockedBy());
+    }
+
+    @Test
+    void recurringTaskSurvivesReloadAndRowsMatchHeader() throws IOException, InterruptedException {
+        File tasksDB = File.createTempFile("tasks", ".csv");
+        tasksDB.deleteOnExit();
+        manager = new FileBackedTasksManager(tasksDB, false);
+        super.init();
+        RecurringTask standup = new RecurringTask(0, "Планерка", "desc", Status.NEW,
+                LocalDateTime.of(2022, 8, 7, 9, 0), 15, 24 * 60, 5);
+        manager.addTask(standup);
+        manager.addDependency(standup.getId(), task.getId());
+
+        List<String> lines = Files.readAllLines(tasksDB.toPath());
+        int columns = lines.get(0).split(",").length;
+        for (String line : lines.subList(1, lines.indexOf(""))) {
+            assertEquals(columns, line.split(",", -1).length, line);
+        }
+
+        FileBackedTasksManager loaded = FileBackedTasksManager.loadFromFile(tasksDB);
+        Task loadedStandup = loaded.getTask(standup.getId());
+        assertTrue(loadedStandup instanceof RecurringTask);
+        assertEquals(24 * 60, ((RecurringTask) loadedStandup).getPeriod());
+        assertEquals(5, ((RecurringTask) loadedStandup).getCount());
+        assertEquals(List.of(task.getId()), loadedStandup.getBlockedBy());
+        assertFalse(loaded.getTask(task.getId()) instanceof RecurringTask);
+    }
+}
@@ -2,23 +2,36 @@ package manager;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import model.Epic;
+import model.RecurringTask;
 import model.Status;
 import model.SubTask;
 import model.Task;
 import org.junit.jupiter.api.*;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HTTPTaskManagerTest extends ManagerTest<HTTPTaskManager> {
     private static KVServer kvServer;
@@ -27,6 +40,7 @@ public class HTTPTaskManagerTest extends ManagerTest<HTTPTaskManager> {
     private final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapterFactory(new TaskAdapterFactory())
             .create();
 
     @BeforeAll
@@ -40,6 +54,11 @@ public class HTTPTaskManagerTest extends ManagerTest<HTTPTaskManager> {
         kvServer.stop();
     }
 
+    @Override
+    protected HTTPTaskManager createManager() {
+        return httpTaskManager;
+    }
+
     @BeforeEach
     public void startServers() {
         this.httpTaskManager = new HTTPTaskManager();
@@ -52,6 +71,50 @@ public class HTTPTaskManagerTest extends ManagerTest<HTTPTaskManager> {
         this.httpTaskServer.stop();
     }
 
+    @Test
+    public void loadRestoresDependencies() {
+        Task design = new Task(0, "Design", "desc", Status.NEW, LocalDateTime.of(2022, 9, 1, 10, 0), 30);
+        Task build = new Task(0, "Build", "desc", Status.NEW, LocalDateTime.of(2022, 9, 1, 11, 0), 30);
+        httpTaskManager.addTask(design);
+        httpTaskManager.addTask(build);
+        httpTaskManager.addDependency(build.getId(), design.getId());
+
+        HTTPTaskManager loaded = new HTTPTaskManager();
+        loaded.load();
+        List<Task> tasks = loaded.getAllTasks();
+        assertEquals(2, tasks.size());
+        assertEquals(List.of(tasks.get(0).getId()), tasks.get(1).getBlockedBy());
+        assertThrows(IllegalArgumentException.class,
+                () -> loaded.addDependency(tasks.get(0).getId(), tasks.get(1).getId()));
+    }
+
+    @Test
+    public void loadRestoresEpicsSubtasksAndHistory() {
+        Epic epic = new Epic(0, "Epic", "desc", Status.NEW);
+        httpTaskManager.addEpic(epic);
+        SubTask first = new SubTask(0, "First", "desc", Status.DONE, epic.getId(),
+                LocalDateTime.of(2022, 9, 1, 10, 0), 30);
+        SubTask second = new SubTask(0, "Second", "desc", Status.NEW, epic.getId());
+        httpTaskManager.addSubTask(first);
+        httpTaskManager.addSubTask(second);
+        httpTaskManager.getSubTask(second.getId());
+        httpTaskManager.getEpic(epic.getId());
+
+        HTTPTaskManager loaded = new HTTPTaskManager();
+        loaded.load();
+        List<Epic> epics = loaded.getAllEpics();
+        assertEquals(1, epics.size());
+        assertEquals(List.of(first.getId(), second.getId()), epics.get(0).getSubTasks());
+        assertEquals(Status.IN_PROGRESS, epics.get(0).getStatus());
+        assertEquals(2, loaded.getSubTasksByEpic(epic.getId()).size());
+        assertEquals(List.of(second.getId(), epic.getId()),
+                loaded.getHistory().stream().map(Task::getId).collect(Collectors.toList()));
+
+        Task added = new Task(0, "After load", "desc", Status.NEW);
+        loaded.addTask(added);
+        assertTrue(added.getId() > second.getId());
+    }
+
     @Test
     public void testTaskGetMethod() throws IOException, InterruptedException {
         Task task = new Task(
@@ -320,6 +383,308 @@ public class HTTPTaskManagerTest extends ManagerTest<HTTPTaskManager> {
         );
     }
 
+    @Test
+    public void testDeleteWithoutIdKeepsTasks() throws IOException, InterruptedException {
+        httpTaskManager.addTask(new Task(0, "Task", "desc Task", Status.NEW));
+        Epic epic = new Epic(0, "Epic", "desc Epic", Status.NEW);
+        httpTaskManager.addEpic(epic);
+        httpTaskManager.addSubTask(new SubTask(0, "Subtask", "desc", Status.NEW, epic.getId()));
+
+        HttpClient client = HttpClient.newHttpClient();
+        for (String type : List.of("task", "epic", "subtask")) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks/" + type))
+                    .DELETE()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(404, response.statusCode());
+        }
+        assertEquals(1, httpTaskManager.getAllTasks().size());
+        assertEquals(1, httpTaskManager.getAllSubTasks().size());
+
+        HttpResponse<String> clearSubTasks = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/subtask/all"))
+                .DELETE()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> clearTasks = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task/all"))
+                .DELETE()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertAll(
+                () -> Assertions.assertEquals(204, clearSubTasks.statusCode()),
+                () -> Assertions.assertEquals(204, clearTasks.statusCode()),
+                () -> Assertions.assertTrue(httpTaskManager.getAllSubTasks().isEmpty()),
+                () -> Assertions.assertTrue(httpTaskManager.getAllTasks().isEmpty()),
+                () -> Assertions.assertEquals(1, httpTaskManager.getAllEpics().size())
+        );
+    }
+
+    @Test
+    public void testTaskGetPageMethod() throws IOException, InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            httpTaskManager.addTask(new Task(0, "Task" + i, "desc Task", Status.NEW,
+                    LocalDateTime.of(2022, 8, 30, 10 + i, 0), 10));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest requestPage = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task?limit=2"))
+                .GET()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        HttpResponse<String> responsePage = client.send(requestPage, HttpResponse.BodyHandlers.ofString());
+        Task[] page = gson.fromJson(responsePage.body(), Task[].class);
+
+        HttpRequest requestNext = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task?limit=2&after="
+                        + responsePage.headers().firstValue("X-Next-Cursor").orElse("")))
+                .GET()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        HttpResponse<String> responseNext = client.send(requestNext, HttpResponse.BodyHandlers.ofString());
+        Task[] next = gson.fromJson(responseNext.body(), Task[].class);
+
+        HttpRequest requestAll = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task"))
+                .GET()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        HttpResponse<String> responseAll = client.send(requestAll, HttpResponse.BodyHandlers.ofString());
+        Task[] all = gson.fromJson(responseAll.body(), Task[].class);
+
+        assertAll(
+                () -> Assertions.assertEquals(200, responsePage.statusCode()),
+                () -> Assertions.assertEquals(2, page.length),
+                () -> Assertions.assertEquals("Task1", page[1].getName()),
+                () -> Assertions.assertEquals(1, next.length),
+                () -> Assertions.assertEquals("Task2", next[0].getName()),
+                () -> Assertions.assertTrue(responseNext.headers().firstValue("X-Next-Cursor").isEmpty()),
+                () -> Assertions.assertEquals(3, all.length)
+        );
+    }
+
+    @Test
+    public void testSearchGetMethod() throws IOException, InterruptedException {
+        httpTaskManager.addTask(new Task(0, "Купить молоко", "desc Task", Status.NEW));
+        httpTaskManager.addTask(new Task(0, "Buy bread", "desc Task", Status.NEW));
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest requestGet = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/search?q="
+                        + URLEncoder.encode("куп молок", StandardCharsets.UTF_8)))
+                .GET()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        HttpResponse<String> responseGet = client.send(requestGet, HttpResponse.BodyHandlers.ofString());
+        Task[] found = gson.fromJson(responseGet.body(), Task[].class);
+
+        assertAll(
+                () -> Assertions.assertEquals(200, responseGet.statusCode()),
+                () -> Assertions.assertEquals(1, found.length),
+                () -> Assertions.assertEquals("Купить молоко", found[0].getName())
+        );
+    }
+
+    @Test
+    public void testSearchWithMalformedQuery() throws IOException {
+        try (Socket socket = new Socket("localhost", 8080)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /tasks/search?q=% HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII)).readLine();
+            Assertions.assertTrue(statusLine.contains(" 400"), statusLine);
+        }
+    }
+
+    @Test
+    public void testRecurringTaskPostMethod() throws IOException, InterruptedException {
+        RecurringTask standup = new RecurringTask(0, "Standup", "desc", Status.NEW,
+                LocalDateTime.of(2022, 8, 30, 9, 0), 15, 24 * 60, 3);
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest requestPost = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task"))
+                .header("X-Add-Update-Task", "add")
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(standup, Task.class)))
+                .build();
+        client.send(requestPost, HttpResponse.BodyHandlers.ofString());
+        HttpRequest requestGet = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task/?id=1"))
+                .GET()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        HttpResponse<String> responseGet = client.send(requestGet, HttpResponse.BodyHandlers.ofString());
+        Task taskFromJson = gson.fromJson(responseGet.body(), Task.class);
+
+        assertAll(
+                () -> Assertions.assertEquals(200, responseGet.statusCode()),
+                () -> Assertions.assertTrue(taskFromJson instanceof RecurringTask),
+                () -> Assertions.assertEquals(3, ((RecurringTask) taskFromJson).getCount()),
+                () -> Assertions.assertEquals(45, httpTaskManager.getAnalytics().scheduledMinutesPerDay().values()
+                        .stream().mapToLong(Long::longValue).sum())
+        );
+    }
+
+    @Test
+    public void testClientHistoryGetMethod() throws IOException, InterruptedException {
+        Task task = new Task(0, "task", "Desc task", Status.NEW);
+        Task other = new Task(0, "other", "Desc other", Status.NEW);
+        httpTaskManager.addTask(task);
+        httpTaskManager.addTask(other);
+
+        HttpClient client = HttpClient.newHttpClient();
+        client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task/?id=" + task.getId()))
+                .header("X-Client-Id", "alice")
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task/?id=" + other.getId()))
+                .header("X-Client-Id", "bob")
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> aliceHistory = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/history"))
+                .header("X-Client-Id", "alice")
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> sharedHistory = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/history"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        Task[] alice = gson.fromJson(aliceHistory.body(), Task[].class);
+        Task[] shared = gson.fromJson(sharedHistory.body(), Task[].class);
+
+        assertAll(
+                () -> Assertions.assertEquals(200, aliceHistory.statusCode()),
+                () -> Assertions.assertEquals(1, alice.length),
+                () -> Assertions.assertEquals(task.getId(), alice[0].getId()),
+                () -> Assertions.assertEquals(2, shared.length)
+        );
+    }
+
+    @Test
+    public void testClientHistoryForgetsDeletedEpicAndSubtasks() throws IOException, InterruptedException {
+        Epic epic = new Epic(0, "epic", "Desc epic", Status.NEW);
+        httpTaskManager.addEpic(epic);
+        SubTask subTask = new SubTask(0, "subtask", "Desc subtask", Status.NEW, epic.getId());
+        httpTaskManager.addSubTask(subTask);
+
+        HttpClient client = HttpClient.newHttpClient();
+        client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/epic/?id=" + epic.getId()))
+                .header("X-Client-Id", "alice")
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/subtask/?id=" + subTask.getId()))
+                .header("X-Client-Id", "alice")
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/epic/?id=" + epic.getId()))
+                .DELETE()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> aliceHistory = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/history"))
+                .header("X-Client-Id", "alice")
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertAll(
+                () -> Assertions.assertEquals(200, aliceHistory.statusCode()),
+                () -> Assertions.assertEquals("[]", aliceHistory.body())
+        );
+    }
+
+    @Test
+    public void testTopViewedGetMethod() throws IOException, InterruptedException {
+        Task task = new Task(0, "task", "Desc task", Status.NEW);
+        Task other = new Task(0, "other", "Desc other", Status.NEW);
+        httpTaskManager.addTask(task);
+        httpTaskManager.addTask(other);
+        httpTaskManager.getTask(other.getId());
+        httpTaskManager.getTask(other.getId());
+        httpTaskManager.getTask(task.getId());
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> responseGet = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/top?limit=1"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        JsonArray top = JsonParser.parseString(responseGet.body()).getAsJsonArray();
+        HttpResponse<String> badLimit = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/top?limit=0"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertAll(
+                () -> Assertions.assertEquals(400, badLimit.statusCode()),
+                () -> Assertions.assertTrue(badLimit.body().startsWith("Ошибка! ")),
+                () -> Assertions.assertEquals(200, responseGet.statusCode()),
+                () -> Assertions.assertEquals(1, top.size()),
+                () -> Assertions.assertEquals(other.getId(), top.get(0).getAsJsonObject().get("id").getAsInt()),
+                () -> Assertions.assertEquals(2, top.get(0).getAsJsonObject().get("views").getAsInt())
+        );
+    }
+
+    @Test
+    public void testStatsGetMethod() throws IOException, InterruptedException {
+        httpTaskManager.addTask(new Task(0, "Task", "desc Task", Status.NEW,
+                LocalDateTime.of(2022, 8, 30, 23, 0), 90));
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest requestGet = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/stats"))
+                .GET()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        HttpResponse<String> responseGet = client.send(requestGet, HttpResponse.BodyHandlers.ofString());
+        JsonObject stats = JsonParser.parseString(responseGet.body()).getAsJsonObject();
+
+        assertAll(
+                () -> Assertions.assertEquals(200, responseGet.statusCode()),
+                () -> Assertions.assertEquals(1, stats.getAsJsonObject("byStatus")
+                        .getAsJsonObject("TASK").get("NEW").getAsInt()),
+                () -> Assertions.assertEquals(60, stats.getAsJsonObject("minutesPerDay")
+                        .get("2022-08-30").getAsInt()),
+                () -> Assertions.assertEquals(30, stats.getAsJsonObject("minutesPerDay")
+                        .get("2022-08-31").getAsInt())
+        );
+    }
+
+    @Test
+    public void testFreeSlotGetMethod() throws IOException, InterruptedException {
+        Task task = new Task(
+                0, "Task",
+                "desc Task",
+                Status.NEW,
+                LocalDateTime.of(2022, 8, 30, 23, 00), 10);
+        httpTaskManager.addTask(task);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest requestGet = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/slot?duration=15&from=2022-08-30T22:50"))
+                .GET()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        HttpResponse<String> responseGet = client.send(requestGet, HttpResponse.BodyHandlers.ofString());
+        LocalDateTime slot = gson.fromJson(responseGet.body(), LocalDateTime.class);
+
+        HttpRequest requestBad = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/slot?from=2022-08-30T22:50"))
+                .GET()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        HttpResponse<String> responseBad = client.send(requestBad, HttpResponse.BodyHandlers.ofString());
+
+        assertAll(
+                () -> Assertions.assertEquals(200, responseGet.statusCode()),
+                () -> Assertions.assertEquals(LocalDateTime.of(2022, 8, 30, 23, 10), slot),
+                () -> Assertions.assertEquals(400, responseBad.statusCode())
+        );
+    }
+
     @Test
     void testGetHistoryMethod() {
         Epic epic = new Epic(
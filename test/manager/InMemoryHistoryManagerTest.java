@@ -0,0 +1,148 @@
+package manager;
+
+import model.Status;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryHistoryManagerTest {
+
+    static class ManualClock extends Clock {
+        long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    private static Task task(int id) {
+        return new Task(id, "Задача " + id, "desc", Status.NEW);
+    }
+
+    @Test
+    void leastRecentlyViewedIsEvicted() {
+        HistoryManager history = Managers.getDefaultHistory(3);
+        history.add(task(1));
+        history.add(task(2));
+        history.add(task(3));
+        history.add(task(1));
+        history.add(task(4));
+        assertEquals(List.of(task(3), task(1), task(4)), history.getHistory());
+
+        history.remove(1);
+        history.add(task(5));
+        history.add(task(6));
+        assertEquals(List.of(task(4), task(5), task(6)), history.getHistory());
+        assertThrows(IllegalArgumentException.class, () -> Managers.getDefaultHistory(0));
+    }
+
+    @Test
+    void managersUseConfiguredHistory() {
+        List<TaskManager> managers = List.of(new InMemoryTaskManager(Managers.getDefaultHistory(2)),
+                Managers.getConcurrentTaskManager(Managers.getDefaultHistory(2)),
+                Managers.getOffHeapTaskManager(Managers.getDefaultHistory(2)));
+        for (TaskManager manager : managers) {
+            for (int i = 0; i < 3; i++) {
+                Task task = new Task(0, "Задача " + i, "desc", Status.NEW);
+                manager.addTask(task);
+                manager.getTask(task.getId());
+            }
+            assertEquals(2, manager.getHistory().size());
+        }
+    }
+
+    @Test
+    void expiredEntriesAreDropped() {
+        ManualClock clock = new ManualClock();
+        HistoryManager history = new InMemoryHistoryManager(10, Duration.ofMinutes(1), clock);
+        history.add(task(1));
+        clock.millis = 30_000;
+        history.add(task(2));
+        clock.millis = 50_000;
+        history.add(task(1));
+        clock.millis = 80_000;
+        assertEquals(List.of(task(2), task(1)), history.getHistory());
+        clock.millis = 100_000;
+        assertEquals(List.of(task(1)), history.getHistory());
+        clock.millis = 110_000;
+        assertTrue(history.getHistory().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> Managers.getDefaultHistory(10, Duration.ZERO));
+    }
+
+    @Test
+    void historyViewIsReusedUntilChanged() {
+        HistoryManager history = Managers.getDefaultHistory(3);
+        history.add(task(1));
+        history.add(task(2));
+        List<Task> view = history.getHistory();
+        assertSame(view, history.getHistory());
+        assertThrows(UnsupportedOperationException.class, () -> view.add(task(3)));
+
+        history.add(task(3));
+        assertEquals(List.of(task(1), task(2)), view);
+        assertNotSame(view, history.getHistory());
+    }
+
+    @Test
+    void returnedHistoryNeverChanges() {
+        HistoryManager history = Managers.getDefaultHistory(3);
+        history.add(task(1));
+        history.add(task(2));
+        List<Task> first = history.getHistory();
+        history.add(task(3));
+        List<Task> second = history.getHistory();
+        history.remove(1);
+        history.remove(2);
+        List<Task> third = history.getHistory();
+
+        assertEquals(List.of(task(1), task(2)), first);
+        assertEquals(List.of(task(1), task(2), task(3)), second);
+        assertEquals(List.of(task(3)), third);
+    }
+
+    @Test
+    void matchesReferenceLruOnRandomViews() {
+        HistoryManager history = Managers.getDefaultHistory(40);
+        LinkedHashMap<Integer, Task> expected = new LinkedHashMap<>();
+        Random random = new Random(42);
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(100) * 64 - 3000;
+            if (random.nextInt(4) == 0) {
+                history.remove(id);
+                expected.remove(id);
+            } else {
+                history.add(task(id));
+                expected.remove(id);
+                expected.put(id, task(id));
+                if (expected.size() > 40) {
+                    expected.remove(expected.keySet().iterator().next());
+                }
+            }
+        }
+        assertEquals(new ArrayList<>(expected.values()), history.getHistory());
+        history.clear();
+        assertTrue(history.getHistory().isEmpty());
+    }
+}
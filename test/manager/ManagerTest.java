@@ -1,18 +1,28 @@
 package manager;
 
 import model.Epic;
+import model.RecurringTask;
 import model.Status;
 import model.SubTask;
 import model.Task;
+import model.TaskTypes;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,8 +35,40 @@ abstract class ManagerTest<T extends TaskManager> {
     SubTask subTask1;
     SubTask subTask2;
 
+    /**
+     * Менеджер для общих тестов, наследник подставляет свою реализацию.
+     */
+    protected T createManager() {
+        return (T) new InMemoryTaskManager();
+    }
+
     void initInMemoryManager() {
-        manager = (T) new InMemoryTaskManager();
+        manager = createManager();
+    }
+
+    /**
+     * Задача в том виде, в каком ее хранит менеджер, без записи в историю.
+     * Менеджер может хранить копию, и переданный ему объект тогда не меняется.
+     */
+    @SuppressWarnings("unchecked")
+    <E extends Task> E stored(E task) {
+        List<Task> all;
+        switch (task.getType()) {
+            case EPIC:
+                all = manager.getAllEpics();
+                break;
+            case SUBTASK:
+                all = manager.getAllSubTasks();
+                break;
+            default:
+                all = manager.getAllTasks();
+        }
+        for (Task candidate : all) {
+            if (candidate.getId() == task.getId()) {
+                return (E) candidate;
+            }
+        }
+        return null;
     }
 
     void initFileBackedManager() {
@@ -76,7 +118,8 @@ abstract class ManagerTest<T extends TaskManager> {
         final List<Epic> epicList = manager.getAllEpics();
         assertNotNull(epicList);
         assertEquals(1, epicList.size(), "Один эпик");
-        assertEquals(epic, epicList.get(0));
+        assertEquals(epic.getId(), epicList.get(0).getId());
+        assertEquals(List.of(subTask.getId()), epicList.get(0).getSubTasks());
     }
 
     @Test
@@ -151,6 +194,40 @@ abstract class ManagerTest<T extends TaskManager> {
         assertEquals("Такой задачи нет", ex.getMessage());
     }
 
+    @Test
+    void getTaskByIdOfAnotherType() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        IllegalArgumentException ex = Assertions.assertThrows(
+                IllegalArgumentException.class,
+                new Executable() {
+                    @Override
+                    public void execute() throws IOException, InterruptedException {
+                        manager.getTask(subTask.getId());
+                    }
+                });
+        assertEquals("Такой задачи нет", ex.getMessage());
+    }
+
+    @Test
+    void updateTaskByIdOfAnotherType() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        Epic storedEpic = stored(epic);
+        Task taskWithEpicId = new Task(epic.getId(), "t1", "descrt1", Status.NEW,
+                LocalDateTime.of(2022, 8, 1, 10, 0), 5);
+        IllegalArgumentException ex = Assertions.assertThrows(
+                IllegalArgumentException.class,
+                new Executable() {
+                    @Override
+                    public void execute() throws IOException, InterruptedException {
+                        manager.updateTask(taskWithEpicId);
+                    }
+                });
+        assertEquals("Невозможно обновить задачу, такой задачи нет", ex.getMessage());
+        assertEquals(storedEpic, manager.getEpic(epic.getId()));
+    }
+
     @Test
     void getSubTask() throws IOException, InterruptedException {
         initInMemoryManager();
@@ -316,6 +393,36 @@ abstract class ManagerTest<T extends TaskManager> {
                 ex.getMessage());
     }
 
+    @Test
+    void findEnclosingTaskIntersection() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        Task task1 = new Task(0, "t1", "descrt1", Status.NEW,
+                LocalDateTime.of(2022, 8, 6, 11, 40), 40);
+        IllegalArgumentException ex = Assertions.assertThrows(
+                IllegalArgumentException.class,
+                new Executable() {
+                    @Override
+                    public void execute() throws IOException, InterruptedException {
+                        manager.addTask(task1);
+                    }
+                });
+        assertEquals("Ошибка! задача t1 пересекается по времени с Задача 1", ex.getMessage());
+    }
+
+    @Test
+    void updateTaskInsideOwnTimeSlot() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        Task movedTask = new Task(task.getId(), "Задача 1", "Описание задачи 1", Status.IN_PROGRESS,
+                LocalDateTime.of(2022, 8, 6, 11, 55), 15);
+        manager.updateTask(movedTask);
+        Task freeTask = new Task(0, "t1", "descrt1", Status.NEW,
+                LocalDateTime.of(2022, 8, 6, 11, 50), 5);
+        manager.addTask(freeTask);
+        assertEquals(2, manager.getAllTasks().size());
+    }
+
     @Test
     void updateEpic() throws IOException, InterruptedException {
         initInMemoryManager();
@@ -522,7 +629,7 @@ abstract class ManagerTest<T extends TaskManager> {
         subTask = new SubTask(0, "stask1", "descrSt1", Status.IN_PROGRESS, 4,
                 LocalDateTime.of(2022, 8, 06, 14, 50), 10);
         manager.addSubTask(subTask);
-        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+        assertEquals(Status.IN_PROGRESS, stored(epic).getStatus());
     }
 
     @Test
@@ -534,7 +641,7 @@ abstract class ManagerTest<T extends TaskManager> {
         subTask = new SubTask(0, "stask1", "descrSt1", Status.DONE, 4,
                 LocalDateTime.of(2022, 8, 6, 14, 55), 10);
         manager.addSubTask(subTask);
-        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(Status.DONE, stored(epic).getStatus());
     }
 
     @Test
@@ -545,7 +652,7 @@ abstract class ManagerTest<T extends TaskManager> {
                 LocalDateTime.of(2022, 8, 6, 15, 00), 11);
         manager.addSubTask(subTask);
 
-        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+        assertEquals(Status.IN_PROGRESS, stored(epic).getStatus());
     }
 
     @Test
@@ -555,7 +662,7 @@ abstract class ManagerTest<T extends TaskManager> {
         subTask1 = new SubTask(0, "stask1", "descrST1", Status.DONE, 2,
                 LocalDateTime.of(2022, 8, 6, 23, 34), 10);
         manager.addSubTask(subTask1);
-        assertEquals(epic.getStartTime(), LocalDateTime.of(2022, 8, 6, 17, 40));
+        assertEquals(stored(epic).getStartTime(), LocalDateTime.of(2022, 8, 6, 17, 40));
     }
 
     @Test
@@ -568,9 +675,556 @@ abstract class ManagerTest<T extends TaskManager> {
         subTask2 = new SubTask(0, "stask1", "descrST1", Status.DONE, 2,
                 LocalDateTime.of(2022, 8, 6, 23, 45), 10);
         manager.addSubTask(subTask2);
-        assertEquals(epic.getDuration(), 30);
+        assertEquals(stored(epic).getDuration(), 30);
+    }
+
+
+    @Test
+    void addAllAndRemoveAll() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        subTask1 = new SubTask(0, "stask1", "descrST1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 12, 10), 30);
+        subTask2 = new SubTask(0, "stask2", "descrST2", Status.DONE, 2,
+                LocalDateTime.of(2022, 8, 6, 12, 40), 20);
+        Task freeTask = new Task(0, "t1", "descrt1", Status.NEW);
+        List<Integer> ids = manager.addAll(subTask1, subTask2, freeTask);
+        assertEquals(List.of(4, 5, 6), ids);
+        assertEquals(3, manager.getSubTasksByEpic(epic.getId()).size());
+        assertEquals(Status.IN_PROGRESS, stored(epic).getStatus());
+        assertEquals(60, stored(epic).getDuration());
+        assertEquals(LocalDateTime.of(2022, 8, 6, 12, 10), stored(epic).getStartTime());
+        assertEquals(5, manager.getPrioritizedTasks().size());
+
+        manager.removeAll(subTask1.getId(), freeTask.getId(), 100);
+        assertEquals(2, manager.getSubTasksByEpic(epic.getId()).size());
+        assertEquals(Status.DONE, stored(epic).getStatus());
+        assertEquals(30, stored(epic).getDuration());
+        assertEquals(3, manager.getPrioritizedTasks().size());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> manager.removeAll(subTask2.getId(), epic.getId()));
+        assertTrue(manager.getAllEpics().isEmpty());
+        assertTrue(manager.getAllSubTasks().isEmpty());
+        assertEquals(List.of(stored(task)), List.copyOf(manager.getPrioritizedTasks()));
+    }
+
+    @Test
+    void addedEpicIgnoresSubTaskIdsSentByClient() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        Epic sent = new Epic(0, "Эпик 2", "desc", Status.NEW);
+        sent.setSubTasks(new int[]{5, 6});
+        SubTask first = new SubTask(0, "stask1", "desc", Status.NEW, 4);
+        SubTask second = new SubTask(0, "stask2", "desc", Status.NEW, 4);
+        manager.addAll(sent, first, second);
+        assertEquals(4, sent.getId());
+        assertEquals(List.of(5, 6), stored(sent).getSubTasks());
+        assertEquals(2, manager.getSubTasksByEpic(4).size());
+
+        Epic single = new Epic(0, "Эпик 3", "desc", Status.NEW);
+        single.setSubTasks(new int[]{2, 3});
+        manager.addEpic(single);
+        assertTrue(stored(single).getSubTasks().isEmpty());
+    }
+
+    @Test
+    void addAllRejectsWholeBatchOnIntersection() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        subTask1 = new SubTask(0, "stask1", "descrST1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 12, 10), 30);
+        subTask2 = new SubTask(0, "stask2", "descrST2", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 12, 30), 20);
+        assertThrows(IllegalArgumentException.class, () -> manager.addAll(subTask1, subTask2));
+        Task crossTask = new Task(0, "t1", "descrt1", Status.NEW,
+                LocalDateTime.of(2022, 8, 6, 12, 0), 10);
+        assertThrows(IllegalArgumentException.class, () -> manager.addAll(subTask1, crossTask));
+        assertEquals(1, manager.getAllSubTasks().size());
+        assertEquals(Status.DONE, stored(epic).getStatus());
+        assertEquals(2, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void updateAllSwapsTimeSlots() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        Task movedTask = new Task(task.getId(), "Задача 1", "Описание задачи 1", Status.NEW,
+                LocalDateTime.of(2022, 8, 6, 17, 40), 10);
+        subTask1 = new SubTask(subTask.getId(), "Подзадача 1", "Описание подзадачи 1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 11, 50), 15);
+        assertThrows(IllegalArgumentException.class, () -> manager.updateAll(movedTask));
+        manager.updateAll(movedTask, subTask1);
+        assertEquals(List.of(subTask1, movedTask), List.copyOf(manager.getPrioritizedTasks()));
+        assertEquals(Status.NEW, stored(epic).getStatus());
+        assertEquals(LocalDateTime.of(2022, 8, 6, 11, 50), stored(epic).getStartTime());
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.updateAll(new SubTask(task.getId(), "s", "d", Status.NEW, 2)));
+    }
+
+    @Test
+    void getSnapshotKeepsPointInTimeView() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        TaskSnapshot before = manager.getSnapshot();
+        assertSame(before, manager.getSnapshot());
+        assertEquals(List.of(task), before.getTasks());
+        assertEquals(2, before.getPrioritizedTasks().size());
+        assertThrows(UnsupportedOperationException.class, () -> before.getTasks().clear());
+
+        subTask1 = new SubTask(0, "stask1", "descrST1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 12, 10), 30);
+        manager.addSubTask(subTask1);
+        TaskSnapshot after = manager.getSnapshot();
+        assertTrue(after.getVersion() > before.getVersion());
+        assertSame(before.getTasks(), after.getTasks());
+        assertEquals(Status.DONE, before.getEpics().get(0).getStatus());
+        assertEquals(Status.IN_PROGRESS, after.getEpics().get(0).getStatus());
+        assertEquals(1, before.getSubTasks().size());
+        assertEquals(2, after.getSubTasks().size());
+        assertEquals(3, after.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void getSnapshotTasksDoNotChangeWithManager() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        TaskSnapshot before = manager.getSnapshot();
+        Task published = before.getTasks().get(0);
+        assertThrows(UnsupportedOperationException.class, () -> published.getBlockedBy().add(3));
+        assertThrows(UnsupportedOperationException.class, () -> published.setStartMinute(0));
+        assertThrows(UnsupportedOperationException.class, () -> published.setDuration(5));
+        assertThrows(UnsupportedOperationException.class, () -> published.setStatus(Status.DONE));
+        Epic publishedEpic = before.getEpics().get(0);
+        assertThrows(UnsupportedOperationException.class, () -> publishedEpic.addSubTask(100));
+        assertThrows(UnsupportedOperationException.class, () -> publishedEpic.setFinishMinute(0));
+
+        task.setStatus(Status.IN_PROGRESS);
+        task.setStartTime(LocalDateTime.of(2022, 8, 6, 20, 0));
+        manager.updateTask(task);
+        manager.addDependency(task.getId(), subTask.getId());
+
+        assertEquals(Status.NEW, published.getStatus());
+        assertEquals(LocalDateTime.of(2022, 8, 6, 11, 50), published.getStartTime());
+        assertTrue(published.getBlockedBy().isEmpty());
+        assertEquals(List.of(published.getId(), subTask.getId()),
+                before.getPrioritizedTasks().stream().map(Task::getId).collect(Collectors.toList()));
+
+        TaskSnapshot after = manager.getSnapshot();
+        Task updated = after.getTasks().get(0);
+        assertEquals(Status.IN_PROGRESS, updated.getStatus());
+        assertEquals(List.of(subTask.getId()), updated.getBlockedBy());
+        assertEquals(List.of(subTask.getId(), updated.getId()),
+                after.getPrioritizedTasks().stream().map(Task::getId).collect(Collectors.toList()));
+        assertSame(before.getEpics(), after.getEpics());
+    }
+
+    @Test
+    void analyticsAggregatesSnapshot() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        subTask1 = new SubTask(0, "stask1", "descrST1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 23, 50), 30);
+        manager.addAll(subTask1, new Task(0, "Без времени", "desc", Status.NEW));
+
+        TaskAnalytics analytics = manager.getAnalytics();
+        assertEquals(manager.getSnapshot().getVersion(), analytics.getVersion());
+        Map<TaskTypes, Map<Status, Long>> byStatus = analytics.countByStatus();
+        assertEquals(2L, byStatus.get(TaskTypes.TASK).get(Status.NEW));
+        assertEquals(1L, byStatus.get(TaskTypes.SUBTASK).get(Status.NEW));
+        assertEquals(1L, byStatus.get(TaskTypes.SUBTASK).get(Status.DONE));
+        assertEquals(1L, byStatus.get(TaskTypes.EPIC).get(Status.IN_PROGRESS));
+        assertEquals(0L, byStatus.get(TaskTypes.EPIC).get(Status.DONE));
+        assertEquals(Map.of(LocalDate.of(2022, 8, 6), 35L, LocalDate.of(2022, 8, 7), 20L),
+                analytics.scheduledMinutesPerDay());
+        assertEquals(Map.of(2, 0.5), analytics.epicCompletion());
+
+        TaskAnalytics parallel = new TaskAnalytics(manager.getSnapshot(), 0);
+        assertEquals(byStatus, parallel.countByStatus());
+        assertEquals(analytics.scheduledMinutesPerDay(), parallel.scheduledMinutesPerDay());
+        assertEquals(analytics.epicCompletion(), parallel.epicCompletion());
+    }
+
+    @Test
+    void dailyCapacityLimitsWorkload() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        LocalDate day = LocalDate.of(2022, 8, 6);
+        LocalDate nextDay = day.plusDays(1);
+        assertEquals(25, manager.getDailyLoad(day));
+        assertThrows(IllegalArgumentException.class, () -> manager.setDailyCapacity(-1));
+        manager.setDailyCapacity(60);
+
+        Task afternoon = new Task(0, "После обеда", "desc", Status.NEW, LocalDateTime.of(2022, 8, 6, 13, 0), 30);
+        manager.addTask(afternoon);
+        assertEquals(55, manager.getDailyLoad(day));
+        assertThrows(IllegalArgumentException.class, () -> manager.addTask(
+                new Task(0, "Лишняя", "desc", Status.NEW, LocalDateTime.of(2022, 8, 6, 14, 0), 10)));
+        assertThrows(IllegalArgumentException.class, () -> manager.addTask(
+                new Task(0, "Ночная", "desc", Status.NEW, LocalDateTime.of(2022, 8, 6, 23, 50), 20)));
+        assertEquals(55, manager.getDailyLoad(day));
+
+        manager.updateTask(new Task(afternoon.getId(), "После обеда", "desc", Status.NEW,
+                LocalDateTime.of(2022, 8, 6, 13, 0), 35));
+        assertEquals(60, manager.getDailyLoad(day));
+        assertThrows(IllegalArgumentException.class, () -> manager.addAll(
+                new Task(0, "Утро", "desc", Status.NEW, LocalDateTime.of(2022, 8, 7, 9, 0), 40),
+                new Task(0, "Вечер", "desc", Status.NEW, LocalDateTime.of(2022, 8, 7, 19, 0), 40)));
+        assertEquals(0, manager.getDailyLoad(nextDay));
+
+        manager.updateAll(new Task(task.getId(), "Задача 1", "desc", Status.NEW,
+                LocalDateTime.of(2022, 8, 6, 23, 50), 20));
+        assertEquals(Map.of(day, 55, nextDay, 10), manager.getDailyLoads(day, nextDay));
+        manager.removeTask(afternoon.getId());
+        assertEquals(20, manager.getDailyLoad(day));
+
+        manager.setDailyCapacity(0);
+        manager.addTask(new Task(0, "Длинная", "desc", Status.NEW, LocalDateTime.of(2022, 8, 7, 1, 0), 600));
+        assertEquals(610, manager.getDailyLoad(nextDay));
+    }
+
+    @Test
+    void dailyCapacityFreesMinutesOfTasksUnscheduledByBatch() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        LocalDate day = LocalDate.of(2022, 8, 6);
+        Task afternoon = new Task(0, "После обеда", "desc", Status.NEW, LocalDateTime.of(2022, 8, 6, 13, 0), 35);
+        manager.addTask(afternoon);
+        manager.setDailyCapacity(60);
+        assertEquals(60, manager.getDailyLoad(day));
+
+        Task draft = new Task(0, "Черновик", "desc", Status.NEW);
+        manager.addTask(draft);
+        manager.updateAll(new Task(afternoon.getId(), "После обеда", "desc", Status.NEW),
+                new Task(draft.getId(), "Вечер", "desc", Status.NEW, LocalDateTime.of(2022, 8, 6, 19, 0), 30));
+        assertEquals(55, manager.getDailyLoad(day));
+        assertNull(stored(afternoon).getStartTime());
+    }
+
+    @Test
+    void recurringTaskExpandsLazily() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        RecurringTask standup = new RecurringTask(0, "Планерка", "desc", Status.NEW,
+                LocalDateTime.of(2022, 8, 7, 9, 0), 15, 24 * 60, 5);
+        manager.addTask(standup);
+        assertEquals(2, manager.getAllTasks().size());
+        assertEquals(15, manager.getDailyLoad(LocalDate.of(2022, 8, 9)));
+        assertEquals(0, manager.getDailyLoad(LocalDate.of(2022, 8, 12)));
+
+        assertThrows(IllegalArgumentException.class, () -> manager.addTask(
+                new Task(0, "Пересекается", "desc", Status.NEW, LocalDateTime.of(2022, 8, 9, 9, 10), 10)));
+        manager.addTask(new Task(0, "После серии", "desc", Status.NEW, LocalDateTime.of(2022, 8, 12, 9, 0), 10));
+        assertThrows(IllegalArgumentException.class, () -> manager.addTask(new RecurringTask(0, "Неверная",
+                "desc", Status.NEW, LocalDateTime.of(2022, 9, 1, 9, 0), 30, 20, 3)));
+
+        List<Task> starting = manager.getTasksStartingBetween(LocalDateTime.of(2022, 8, 8, 0, 0),
+                LocalDateTime.of(2022, 8, 10, 0, 0));
+        assertEquals(2, starting.size());
+        assertEquals(LocalDateTime.of(2022, 8, 8, 9, 0), starting.get(0).getStartTime());
+        assertEquals(LocalDateTime.of(2022, 8, 9, 9, 0), starting.get(1).getStartTime());
+        assertEquals(standup.getId(), starting.get(1).getId());
+        assertEquals(List.of(standup.getOccurrence(3)),
+                manager.getTasksActiveAt(LocalDateTime.of(2022, 8, 10, 9, 5)));
+        assertEquals(LocalDateTime.of(2022, 8, 10, 9, 15),
+                manager.findFreeSlot(20, LocalDateTime.of(2022, 8, 10, 8, 50)));
+        Set<Task> prioritized = manager.getPrioritizedTasks();
+        assertEquals(4, prioritized.size());
+        assertTrue(prioritized.contains(standup));
+
+        manager.removeTask(standup.getId());
+        assertEquals(0, manager.getDailyLoad(LocalDate.of(2022, 8, 9)));
+        manager.addTask(new Task(0, "Свободно", "desc", Status.NEW, LocalDateTime.of(2022, 8, 9, 9, 10), 10));
+    }
+
+    @Test
+    void accessStatisticsCountViews() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        for (int i = 0; i < 3; i++) {
+            manager.getSubTask(subTask.getId());
+        }
+        manager.getTask(task.getId());
+        manager.getEpic(epic.getId());
+        manager.getEpic(epic.getId());
+        assertEquals(List.of(subTask.getId(), epic.getId(), task.getId()),
+                List.copyOf(manager.getTopViewed(10).keySet()));
+        assertEquals(3, manager.getViewEstimate(subTask.getId()));
+        assertThrows(UnsupportedOperationException.class, () -> manager.getTopViewed(10).clear());
+
+        manager.removeSubTask(subTask.getId());
+        assertEquals(List.of(epic.getId(), task.getId()), List.copyOf(manager.getTopViewed(10).keySet()));
+        manager.clearTasks();
+        manager.clearEpics();
+        assertTrue(manager.getTopViewed(10).isEmpty());
+    }
+
+    @Test
+    void getPageAndIterate() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        subTask1 = new SubTask(0, "stask1", "descrST1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 12, 10), 30);
+        subTask2 = new SubTask(0, "stask2", "descrST2", Status.NEW, 2);
+        manager.addAll(subTask1, subTask2);
+        assertEquals(List.of(subTask, subTask1), manager.getPage(TaskTypes.SUBTASK, 0, 2));
+        assertEquals(List.of(subTask2), manager.getPage(TaskTypes.SUBTASK, subTask1.getId(), 2));
+        assertTrue(manager.getPage(TaskTypes.SUBTASK, subTask2.getId(), 2).isEmpty());
+        assertEquals(List.of(stored(epic)), manager.getPage(TaskTypes.EPIC, -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> manager.getPage(TaskTypes.TASK, 0, 0));
+
+        Iterator<Task> subTasks = manager.iterate(TaskTypes.SUBTASK);
+        assertEquals(subTask, subTasks.next());
+        assertEquals(subTask1, subTasks.next());
+        assertEquals(subTask2, subTasks.next());
+        assertFalse(subTasks.hasNext());
+        assertEquals(task, manager.iterate(TaskTypes.TASK).next());
+    }
+
+    @Test
+    void subscribeReceivesChangeEvents() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        BlockingQueue<TaskEvent> received = new LinkedBlockingQueue<>();
+        TaskEventListener listener = received::add;
+        manager.subscribe(listener);
+        subTask1 = new SubTask(0, "stask1", "descrST1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 12, 10), 30);
+        manager.addSubTask(subTask1);
+        manager.removeTask(task.getId());
+
+        TaskEvent added = received.poll(5, TimeUnit.SECONDS);
+        TaskEvent epicUpdated = received.poll(5, TimeUnit.SECONDS);
+        TaskEvent removed = received.poll(5, TimeUnit.SECONDS);
+        assertEquals(TaskEvent.Kind.ADDED, added.getKind());
+        assertEquals(subTask1, added.getAfter());
+        assertNull(added.getBefore());
+        assertEquals(TaskEvent.Kind.UPDATED, epicUpdated.getKind());
+        assertEquals(TaskTypes.EPIC, epicUpdated.getType());
+        assertEquals(Status.DONE, epicUpdated.getBefore().getStatus());
+        assertEquals(Status.IN_PROGRESS, epicUpdated.getAfter().getStatus());
+        assertEquals(TaskEvent.Kind.REMOVED, removed.getKind());
+        assertEquals(task, removed.getBefore());
+        assertEquals(added.getSequence() + 2, removed.getSequence());
+
+        manager.unsubscribe(listener);
+        manager.removeEpic(epic.getId());
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void eventTasksDoNotChangeAfterPublishing() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        BlockingQueue<TaskEvent> received = new LinkedBlockingQueue<>();
+        TaskEventListener listener = received::add;
+        manager.subscribe(listener);
+        Task blocked = new Task(0, "blocked", "desc", Status.NEW);
+        manager.addTask(blocked);
+        manager.addDependency(blocked.getId(), task.getId());
+        manager.removeTask(task.getId());
+
+        TaskEvent added = received.poll(5, TimeUnit.SECONDS);
+        TaskEvent removed = received.poll(5, TimeUnit.SECONDS);
+        manager.unsubscribe(listener);
+        assertEquals(TaskEvent.Kind.ADDED, added.getKind());
+        assertNotSame(blocked, added.getAfter());
+        assertEquals(List.of(), added.getAfter().getBlockedBy());
+        assertEquals(TaskEvent.Kind.REMOVED, removed.getKind());
+        assertNotSame(task, removed.getBefore());
+    }
+
+    @Test
+    void clearSubTasksAndEpics() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        manager.getSubTask(subTask.getId());
+        manager.getTask(task.getId());
+        manager.clearSubTasks();
+        assertTrue(manager.getAllSubTasks().isEmpty());
+        assertTrue(manager.getSubTasksByEpic(epic.getId()).isEmpty());
+        assertEquals(Status.NEW, epic.getStatus());
+        assertEquals(0, epic.getDuration());
+        assertEquals(List.of(task), manager.getHistory());
+        assertEquals(1, manager.getPrioritizedTasks().size());
+
+        manager.clearEpics();
+        assertTrue(manager.getAllEpics().isEmpty());
+        assertEquals(List.of(task), manager.getAllTasks());
+    }
+
+    @Test
+    void clearTasks() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        manager.getTask(task.getId());
+        manager.clearTasks();
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertTrue(manager.getHistory().isEmpty());
+        assertEquals(List.of(subTask), List.copyOf(manager.getPrioritizedTasks()));
+
+        manager.clearEpics();
+        assertTrue(manager.getAllSubTasks().isEmpty());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+        assertEquals(0, manager.countByStatus(Status.DONE));
+        Task freeTask = new Task(0, "t1", "descrt1", Status.NEW,
+                LocalDateTime.of(2022, 8, 6, 11, 50), 15);
+        manager.addTask(freeTask);
+        assertEquals(List.of(freeTask), manager.getAllTasks());
+    }
+
+    @Test
+    void dependenciesAndCriticalPath() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        Task design = new Task(0, "design", "d", Status.NEW);
+        design.setDuration(60);
+        Task build = new Task(0, "build", "d", Status.NEW);
+        build.setDuration(120);
+        manager.addAll(design, build);
+        manager.addDependency(build.getId(), design.getId());
+        manager.addDependency(subTask.getId(), task.getId());
+        assertEquals(List.of(design.getId()), stored(build).getBlockedBy());
+        assertEquals(60, manager.getEarliestStart(build.getId()));
+        assertEquals(15, manager.getEarliestStart(subTask.getId()));
+        assertEquals(List.of(design, build), manager.getCriticalPath());
+        assertThrows(IllegalArgumentException.class, () -> manager.addDependency(design.getId(), build.getId()));
+        assertThrows(IllegalArgumentException.class, () -> manager.addDependency(task.getId(), epic.getId()));
+
+        Task longTask = new Task(task.getId(), "Задача 1", "Описание задачи 1", Status.NEW,
+                LocalDateTime.of(2022, 8, 6, 11, 50), 300);
+        manager.updateTask(longTask);
+        assertEquals(List.of(task.getId()), stored(subTask).getBlockedBy());
+        assertEquals(300, manager.getEarliestStart(subTask.getId()));
+        assertEquals(List.of(longTask, subTask), manager.getCriticalPath());
+
+        manager.removeTask(design.getId());
+        assertTrue(stored(build).getBlockedBy().isEmpty());
+        assertEquals(0, manager.getEarliestStart(build.getId()));
+        manager.removeDependency(subTask.getId(), task.getId());
+        assertEquals(0, manager.getEarliestStart(subTask.getId()));
+        assertEquals(List.of(longTask), manager.getCriticalPath());
+    }
+
+    @Test
+    void searchByWordPrefixes() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        Task release = new Task(0, "Release Ёлка", "Собрать релиз, v2", Status.NEW);
+        manager.addTask(release);
+        assertEquals(List.of(task, stored(epic), subTask), manager.search("опис"));
+        assertEquals(List.of(stored(epic)), manager.search("ЭПИК"));
+        assertEquals(List.of(release), manager.search("елк rel"));
+        assertEquals(List.of(release), manager.search("v2"));
+        assertTrue(manager.search("релиз эпик").isEmpty());
+        assertTrue(manager.search("  ,").isEmpty());
+
+        manager.updateTask(new Task(release.getId(), "Hotfix", "Собрать релиз, v2", Status.NEW));
+        assertTrue(manager.search("release").isEmpty());
+        assertEquals(1, manager.search("hot").size());
+        manager.removeTask(release.getId());
+        assertTrue(manager.search("релиз").isEmpty());
+    }
+
+    @Test
+    void removeSubTaskRecalculatesEpic() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        subTask1 = new SubTask(0, "stask1", "descrST1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 23, 34), 10);
+        manager.addSubTask(subTask1);
+        assertEquals(Status.IN_PROGRESS, stored(epic).getStatus());
+        assertEquals(LocalDateTime.of(2022, 8, 6, 23, 44), stored(epic).getFinishTime());
+        manager.removeSubTask(subTask1.getId());
+        assertEquals(1, manager.getSubTasksByEpic(epic.getId()).size());
+        assertEquals(Status.DONE, stored(epic).getStatus());
+        assertEquals(10, stored(epic).getDuration());
+        assertEquals(LocalDateTime.of(2022, 8, 6, 17, 50), stored(epic).getFinishTime());
+    }
+
+    @Test
+    void updateSubTaskRecalculatesEpic() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        subTask1 = new SubTask(subTask.getId(), "Подзадача 1", "Описание подзадачи 1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 16, 0), 25);
+        manager.updateSubTask(subTask1);
+        assertEquals(Status.NEW, stored(epic).getStatus());
+        assertEquals(25, stored(epic).getDuration());
+        assertEquals(LocalDateTime.of(2022, 8, 6, 16, 0), stored(epic).getStartTime());
+        assertEquals(1, manager.getSubTasksByEpic(epic.getId()).size());
+    }
+
+    @Test
+    void removeEpicWithoutSubTasks() throws IOException, InterruptedException {
+        initInMemoryManager();
+        epic = new Epic(0, "e1", "descE1", Status.NEW);
+        manager.addEpic(epic);
+        manager.removeEpic(epic.getId());
+        assertEquals(0, manager.getAllEpics().size());
+    }
+
+    @Test
+    void getByStatusAndCountByStatus() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        assertEquals(1, manager.countByStatus(TaskTypes.TASK, Status.NEW));
+        assertEquals(1, manager.countByStatus(TaskTypes.EPIC, Status.DONE));
+        assertEquals(2, manager.countByStatus(Status.DONE));
+        subTask1 = new SubTask(0, "stask1", "descrST1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 23, 34), 10);
+        manager.addSubTask(subTask1);
+        assertEquals(0, manager.countByStatus(TaskTypes.EPIC, Status.DONE));
+        assertEquals(List.of(stored(epic)), manager.getByStatus(TaskTypes.EPIC, Status.IN_PROGRESS));
+        task = new Task(task.getId(), "Задача 1", "Описание задачи 1", Status.IN_PROGRESS,
+                LocalDateTime.of(2022, 8, 6, 11, 50), 15);
+        manager.updateTask(task);
+        Map<Status, List<Task>> columns = manager.getKanbanColumns(TaskTypes.TASK);
+        assertEquals(0, columns.get(Status.NEW).size());
+        assertEquals(List.of(task), columns.get(Status.IN_PROGRESS));
+        manager.removeSubTask(subTask1.getId());
+        assertEquals(2, manager.getByStatus(Status.DONE).size());
+        assertEquals(0, manager.countByStatus(Status.NEW));
     }
 
+    @Test
+    void getTasksStartingBetweenAndActiveAt() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        subTask1 = new SubTask(0, "stask1", "descrST1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 12, 5), 30);
+        manager.addSubTask(subTask1);
+        assertEquals(List.of(task, subTask1), manager.getTasksStartingBetween(
+                LocalDateTime.of(2022, 8, 6, 0, 0), LocalDateTime.of(2022, 8, 6, 17, 40)));
+        assertEquals(List.of(subTask1, subTask), manager.getTasksStartingBetween(
+                LocalDateTime.of(2022, 8, 6, 12, 0), LocalDateTime.of(2022, 8, 7, 0, 0)));
+        assertEquals(List.of(subTask1), manager.getTasksActiveAt(LocalDateTime.of(2022, 8, 6, 12, 5)));
+        assertEquals(List.of(task), manager.getTasksActiveAt(LocalDateTime.of(2022, 8, 6, 12, 4)));
+        assertTrue(manager.getTasksActiveAt(LocalDateTime.of(2022, 8, 6, 13, 0)).isEmpty());
+    }
+
+    @Test
+    void findFreeSlot() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        subTask1 = new SubTask(0, "stask1", "descrST1", Status.NEW, 2,
+                LocalDateTime.of(2022, 8, 6, 12, 10), 30);
+        manager.addSubTask(subTask1);
+        assertEquals(LocalDateTime.of(2022, 8, 6, 11, 0),
+                manager.findFreeSlot(50, LocalDateTime.of(2022, 8, 6, 11, 0)));
+        assertEquals(LocalDateTime.of(2022, 8, 6, 12, 40),
+                manager.findFreeSlot(60, LocalDateTime.of(2022, 8, 6, 11, 0)));
+        assertEquals(LocalDateTime.of(2022, 8, 6, 12, 40),
+                manager.findFreeSlot(300, LocalDateTime.of(2022, 8, 6, 11, 0)));
+        assertEquals(LocalDateTime.of(2022, 8, 6, 12, 40),
+                manager.findFreeSlot(10, LocalDateTime.of(2022, 8, 6, 11, 55)));
+        assertEquals(LocalDateTime.of(2022, 8, 6, 17, 50),
+                manager.findFreeSlot(10, LocalDateTime.of(2022, 8, 6, 17, 45)));
+        Task scheduled = new Task(0, "t1", "descrt1", Status.NEW,
+                manager.findFreeSlot(310, LocalDateTime.of(2022, 8, 6, 11, 0)), 310);
+        manager.addTask(scheduled);
+        assertEquals(LocalDateTime.of(2022, 8, 6, 17, 50), scheduled.getStartTime());
+    }
 
     @Test
     void getPrioritizedTasks() throws IOException, InterruptedException {
@@ -582,11 +1236,12 @@ abstract class ManagerTest<T extends TaskManager> {
         subTask2 = new SubTask(0, "stask1", "descrST1", Status.DONE, 2,
                 LocalDateTime.of(2022, 8, 6, 23, 45), 10);
         manager.addSubTask(subTask2);
-        assertEquals(epic.getDuration(), 30);
+        assertEquals(stored(epic).getDuration(), 30);
         task = new Task(0, "t1", "t1 desc", Status.NEW,
                 LocalDateTime.of(2022, 8, 6, 23, 20), 15);
      //   System.out.println(manager.getPrioritizedTasks());
         Set<Task> prioTasks = manager.getPrioritizedTasks();
+        assertEquals(4, prioTasks.size());
         Integer i = 0;
         for (Task task : prioTasks) {
             if (i == 1) {
@@ -608,4 +1263,33 @@ abstract class ManagerTest<T extends TaskManager> {
             }
         }
     }
+
+    @Test
+    void getPrioritizedTasksWithEqualStartTime() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        Task reminder = new Task(0, "reminder", "reminder desc", Status.NEW,
+                LocalDateTime.of(2022, 8, 6, 11, 50), 0);
+        manager.addTask(reminder);
+        Set<Task> prioTasks = manager.getPrioritizedTasks();
+        assertEquals(3, prioTasks.size());
+        assertTrue(prioTasks.contains(reminder));
+        assertEquals(task, prioTasks.iterator().next());
+    }
+
+    @Test
+    void getPrioritizedTasksAfterUpdateAndRemove() throws IOException, InterruptedException {
+        initInMemoryManager();
+        init();
+        Task movedTask = new Task(task.getId(), "Задача 1", "Описание задачи 1", Status.NEW,
+                LocalDateTime.of(2022, 8, 6, 18, 0), 15);
+        manager.updateTask(movedTask);
+        Set<Task> prioTasks = manager.getPrioritizedTasks();
+        assertEquals(2, prioTasks.size());
+        assertEquals(subTask, prioTasks.iterator().next());
+        manager.removeTask(movedTask.getId());
+        prioTasks = manager.getPrioritizedTasks();
+        assertEquals(1, prioTasks.size());
+        assertFalse(prioTasks.contains(movedTask));
+    }
 }
\ No newline at end of file
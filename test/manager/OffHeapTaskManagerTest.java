@@ -0,0 +1,109 @@
+package manager;
+
+import model.Epic;
+import model.Status;
+import model.SubTask;
+import model.Task;
+import model.TaskTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapTaskManagerTest extends ManagerTest<OffHeapTaskManager> {
+
+    @Override
+    protected OffHeapTaskManager createManager() {
+        return Managers.getOffHeapTaskManager();
+    }
+
+    @BeforeEach
+    void initOffHeapTaskManager() {
+        manager = createManager();
+    }
+
+    /**
+     * Задачи читаются заново: менеджер вне кучи не держит объекты, переданные ему.
+     */
+    @Test
+    void rollupsAndDependenciesAreWrittenBack() {
+        Epic epic = new Epic(0, "Эпик", "Описание", Status.NEW);
+        manager.addEpic(epic);
+        SubTask first = new SubTask(0, "Первая", "Описание", Status.DONE, epic.getId(),
+                LocalDateTime.of(2022, 8, 6, 10, 0), 30);
+        SubTask second = new SubTask(0, "Вторая", "Описание", Status.NEW, epic.getId(),
+                LocalDateTime.of(2022, 8, 6, 12, 0), 15);
+        manager.addAll(first, second);
+
+        Epic stored = manager.getEpic(epic.getId());
+        assertArrayEquals(new int[]{first.getId(), second.getId()}, stored.getSubTaskIds());
+        assertEquals(Status.IN_PROGRESS, stored.getStatus());
+        assertEquals(45, stored.getDuration());
+        assertEquals(LocalDateTime.of(2022, 8, 6, 10, 0), stored.getStartTime());
+        assertEquals(LocalDateTime.of(2022, 8, 6, 12, 15), stored.getFinishTime());
+
+        manager.addDependency(second.getId(), first.getId());
+        assertEquals(List.of(first.getId()), manager.getSubTask(second.getId()).getBlockedBy());
+        manager.updateSubTask(new SubTask(second.getId(), "Вторая", "Описание", Status.DONE, epic.getId(),
+                LocalDateTime.of(2022, 8, 6, 12, 0), 15));
+        assertEquals(List.of(first.getId()), manager.getSubTask(second.getId()).getBlockedBy());
+        assertEquals(Status.DONE, manager.getEpic(epic.getId()).getStatus());
+
+        manager.removeSubTask(first.getId());
+        assertTrue(manager.getSubTask(second.getId()).getBlockedBy().isEmpty());
+        stored = manager.getEpic(epic.getId());
+        assertArrayEquals(new int[]{second.getId()}, stored.getSubTaskIds());
+        assertEquals(15, stored.getDuration());
+
+        manager.clearSubTasks();
+        assertEquals(0, manager.getEpic(epic.getId()).getSubTaskCount());
+        assertEquals(Status.NEW, manager.getEpic(epic.getId()).getStatus());
+    }
+
+    @Test
+    void storeGrowsAndCompactsArena() {
+        OffHeapTaskStore store = new OffHeapTaskStore();
+        int rows = 3000;
+        for (int id = 1; id <= rows; id++) {
+            store.put(new Task(id, "Задача " + id, "Описание", Status.NEW,
+                    LocalDateTime.of(2022, 8, 1, 0, 0).plusMinutes(id), id % 60));
+        }
+        Epic epic = new Epic(rows + 1, "Эпик", null, Status.DONE);
+        epic.addSubTask(rows + 2);
+        store.put(epic);
+        store.put(new SubTask(rows + 2, "Подзадача", "", Status.DONE, rows + 1));
+        int afterFill = store.arenaBytes();
+        for (int round = 0; round < 20; round++) {
+            for (int id = 1; id <= rows; id++) {
+                store.writeBack(new Task(id, "Задача " + id + " v" + round, "Описание", Status.IN_PROGRESS));
+            }
+        }
+        assertTrue(store.arenaBytes() < afterFill * 4, "мусор в области должен собираться");
+        assertEquals(rows, store.size(TaskTypes.TASK));
+        Task task = store.get(1500);
+        assertEquals("Задача 1500 v19", task.getName());
+        assertEquals(Status.IN_PROGRESS, task.getStatus());
+        assertNull(task.getStartTime());
+        assertNotSame(task, store.get(1500), "объекты создаются при каждом чтении");
+
+        Epic storedEpic = store.get(rows + 1, TaskTypes.EPIC);
+        assertArrayEquals(new int[]{rows + 2}, storedEpic.getSubTaskIds());
+        assertNull(storedEpic.getDescription());
+        SubTask subTask = store.get(rows + 2, TaskTypes.SUBTASK);
+        assertEquals(rows + 1, subTask.getEpicId());
+        assertEquals("", subTask.getDescription());
+
+        store.remove(1500);
+        assertNull(store.get(1500));
+        assertEquals(rows - 1, store.size(TaskTypes.TASK));
+        store.clear();
+        assertEquals(0, store.values(TaskTypes.TASK).size());
+    }
+}
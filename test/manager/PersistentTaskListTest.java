@@ -0,0 +1,78 @@
+package manager;
+
+import model.Status;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentTaskListTest {
+
+    @Test
+    void oldVersionsStayUnchanged() {
+        Random random = new Random(7);
+        TreeMap<Integer, Task> expected = new TreeMap<>();
+        PersistentTaskList<Task> list = PersistentTaskList.empty();
+        List<PersistentTaskList<Task>> versions = new ArrayList<>();
+        List<List<Task>> contents = new ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            int id = random.nextInt(step < 1500 ? 100 : 40000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(id);
+                list = list.without(id);
+            } else {
+                Task task = new Task(id, "t" + step, "d", Status.NEW);
+                expected.put(id, task);
+                list = list.with(task);
+            }
+            if (step % 100 == 0) {
+                versions.add(list);
+                contents.add(List.copyOf(expected.values()));
+            }
+        }
+        assertEquals(List.copyOf(expected.values()), list);
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(list));
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(contents.get(i), versions.get(i));
+        }
+        for (int id : expected.keySet()) {
+            assertSame(expected.get(id), list.find(id));
+        }
+        assertNull(list.find(-1));
+        assertNull(list.find(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void setKeepsPriorityOrderAcrossVersions() {
+        Task early = new Task(1, "t1", "d", Status.NEW, LocalDateTime.of(2022, 8, 6, 10, 0), 10);
+        Task late = new Task(2, "t2", "d", Status.NEW, LocalDateTime.of(2022, 8, 6, 12, 0), 10);
+        Task unscheduled = new Task(3, "t3", "d", Status.NEW);
+        PersistentTaskSet first = PersistentTaskSet.EMPTY.with(unscheduled).with(late).with(early);
+        assertEquals(List.of(early, late, unscheduled), List.copyOf(first));
+
+        Task moved = new Task(1, "t1", "d", Status.NEW, LocalDateTime.of(2022, 8, 6, 14, 0), 10);
+        PersistentTaskSet second = first.without(early).with(moved);
+        assertEquals(List.of(late, moved, unscheduled), List.copyOf(second));
+        assertEquals(List.of(early, late, unscheduled), List.copyOf(first));
+        assertTrue(second.contains(moved));
+        assertFalse(second.contains(early));
+        assertSame(second, second.without(early));
+
+        TreeSet<Integer> ids = new TreeSet<>();
+        PersistentTaskSet set = PersistentTaskSet.EMPTY;
+        for (int id = 100; id < 1100; id++) {
+            set = set.with(new Task(id, "t", "d", Status.NEW));
+            ids.add(id);
+        }
+        assertEquals(1000, set.size());
+        assertEquals(new ArrayList<>(ids), set.stream().map(Task::getId).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,63 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+    private static final String[] WORDS = {"alpha", "alps", "beta", "bet", "gamma", "общий", "редкий"};
+
+    @Test
+    void matchesBruteForceAcrossSparseAndDensePostings() {
+        Random random = new Random(11);
+        SearchIndex index = new SearchIndex();
+        Map<Integer, String> texts = new HashMap<>();
+        for (int step = 0; step < 6000; step++) {
+            int id = random.nextInt(3000);
+            String previous = texts.get(id);
+            if (previous != null && random.nextInt(3) == 0) {
+                index.remove(id, previous);
+                texts.remove(id);
+                continue;
+            }
+            String text = "общий " + WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(4)];
+            if (previous == null) {
+                index.add(id, text);
+            } else {
+                index.replace(id, previous, text);
+            }
+            texts.put(id, text);
+            if (step % 500 == 0 || step > 5900) {
+                for (String query : List.of("общ", "al", "alp bet", "bet", "gamma общий", "ред alps")) {
+                    assertEquals(bruteForce(texts, query), index.search(query), query);
+                }
+            }
+        }
+    }
+
+    private static List<Integer> bruteForce(Map<Integer, String> texts, String query) {
+        List<Integer> result = new ArrayList<>();
+        for (int id = 0; id < 3000; id++) {
+            String text = texts.get(id);
+            if (text == null) {
+                continue;
+            }
+            Set<String> terms = SearchIndex.tokenize(text);
+            boolean all = true;
+            for (String prefix : SearchIndex.tokenize(query)) {
+                all &= terms.stream().anyMatch(term -> term.startsWith(prefix));
+            }
+            if (all) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+}
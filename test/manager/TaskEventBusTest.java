@@ -0,0 +1,47 @@
+package manager;
+
+import model.Status;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskEventBusTest {
+
+    @Test
+    void slowSubscriberSkipsOverwrittenEvents() throws InterruptedException {
+        TaskEventBus bus = new TaskEventBus(4);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<Long> sequences = new CopyOnWriteArrayList<>();
+        bus.subscribe(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sequences.add(event.getSequence());
+            if (event.getSequence() == 9) {
+                done.countDown();
+            }
+        });
+        Task task = new Task(1, "t", "d", Status.NEW);
+        for (int i = 0; i < 10; i++) {
+            bus.publish(TaskEvent.Kind.UPDATED, task, task);
+        }
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(sequences.size() <= 5, "отставший подписчик не получает перезаписанные события");
+        assertEquals(List.of(6L, 7L, 8L, 9L), sequences.subList(sequences.size() - 4, sequences.size()));
+    }
+
+    @Test
+    void capacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TaskEventBus(3));
+    }
+}
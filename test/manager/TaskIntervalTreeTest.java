@@ -0,0 +1,64 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskIntervalTreeTest {
+
+    @Test
+    void matchesBruteForceOnRandomChanges() {
+        Random random = new Random(5);
+        TaskIntervalTree tree = new TaskIntervalTree();
+        TreeMap<Integer, long[]> expected = new TreeMap<>();
+        for (int step = 0; step < 5000; step++) {
+            int id = random.nextInt(700);
+            if (random.nextInt(4) == 0) {
+                tree.remove(id);
+                expected.remove(id);
+            } else {
+                long start = random.nextInt(100_000);
+                long finish = start + 1 + random.nextInt(500);
+                tree.add(id, start, finish);
+                expected.put(id, new long[]{start, finish});
+            }
+            assertEquals(expected.size(), tree.size());
+            long from = random.nextInt(100_000);
+            long to = from + 1 + random.nextInt(2000);
+            List<Integer> overlapping = new ArrayList<>();
+            tree.forEachOverlap(from, to, overlapping::add);
+            List<Integer> expectedOverlapping = new ArrayList<>();
+            for (int key : ordered(expected)) {
+                long[] interval = expected.get(key);
+                if (interval[0] < to && from < interval[1]) {
+                    expectedOverlapping.add(key);
+                }
+            }
+            assertEquals(expectedOverlapping, overlapping);
+            int first = tree.findOverlap(from, to, none -> false);
+            assertEquals(expectedOverlapping.isEmpty() ? TaskIntervalTree.NOT_FOUND : expectedOverlapping.get(0),
+                    first);
+        }
+        List<Integer> inOrder = new ArrayList<>();
+        for (PrimitiveIterator.OfInt iterator = tree.iterator(); iterator.hasNext(); ) {
+            inOrder.add(iterator.nextInt());
+        }
+        assertEquals(ordered(expected), inOrder);
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertFalse(tree.iterator().hasNext());
+    }
+
+    private static List<Integer> ordered(TreeMap<Integer, long[]> intervals) {
+        List<Integer> ids = new ArrayList<>(intervals.keySet());
+        ids.sort(Comparator.<Integer>comparingLong(id -> intervals.get(id)[0]).thenComparingInt(id -> id));
+        return ids;
+    }
+}
@@ -1,9 +1,15 @@
 package model;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import manager.TaskAdapterFactory;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TaskTest {
@@ -12,4 +18,74 @@ class TaskTest {
         System.out.println(LocalDateTime.now());
         assertTrue(true);
     }
-}
\ No newline at end of file
+
+    @Test
+    void finishTimeFollowsStartAndDuration() {
+        Task task = new Task(1, "Задача", "Описание", Status.NEW, LocalDateTime.of(2022, 8, 6, 17, 40, 30), 10);
+        assertEquals(LocalDateTime.of(2022, 8, 6, 17, 40), task.getStartTime());
+        assertEquals(LocalDateTime.of(2022, 8, 6, 17, 50), task.getFinishTime());
+        task.setDuration(20);
+        assertEquals(LocalDateTime.of(2022, 8, 6, 18, 0), task.getFinishTime());
+        task.setStartTime(null);
+        assertNull(task.getStartTime());
+        assertNull(task.getFinishTime());
+        assertNull(new Task(2, "Без времени", "Описание", Status.NEW).getFinishTime());
+    }
+
+    @Test
+    void epicKeepsSubTaskIdsInArray() {
+        Epic epic = new Epic(1, "Эпик", "Описание", Status.NEW);
+        epic.addSubTask(2);
+        epic.addSubTask(3);
+        epic.addSubTask(4);
+        int[] before = epic.getSubTaskIds();
+        epic.removeSubTask(3);
+        assertArrayEquals(new int[]{2, 3, 4}, before, "старый массив не должен меняться");
+        assertArrayEquals(new int[]{2, 4}, epic.getSubTaskIds());
+        assertEquals(2, epic.getSubTasks().size());
+        assertEquals(4, epic.getSubTasks().get(1));
+        epic.clearSubTasks();
+        assertEquals(0, epic.getSubTaskCount());
+    }
+
+    @Test
+    void jsonKeepsTimeAsIsoString() {
+        Gson gson = new Gson();
+        Task task = new Task(1, "Задача", "Описание", Status.NEW, LocalDateTime.of(2022, 8, 6, 17, 40), 10);
+        String json = gson.toJson(task);
+        assertTrue(json.contains("\"startTime\":\"2022-08-06T17:40:00\""), json);
+        Task restored = gson.fromJson(json, Task.class);
+        assertEquals(task.getStartTime(), restored.getStartTime());
+        assertEquals(task.getFinishTime(), restored.getFinishTime());
+
+        Task withoutTime = gson.fromJson("{\"id\":2,\"name\":\"Задача\",\"duration\":5}", Task.class);
+        assertNull(withoutTime.getStartTime());
+        Epic epic = gson.fromJson("{\"id\":3,\"subTasks\":[4,5],\"finishTime\":\"2022-08-06T18:00\"}", Epic.class);
+        assertArrayEquals(new int[]{4, 5}, epic.getSubTaskIds());
+        assertEquals(LocalDateTime.of(2022, 8, 6, 18, 0), epic.getFinishTime());
+    }
+
+    @Test
+    void jsonWritesDerivedFinishTime() {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new TaskAdapterFactory()).create();
+        Task task = new Task(1, "Задача", "Описание", Status.NEW, LocalDateTime.of(2022, 8, 6, 17, 40), 10);
+        SubTask subTask = new SubTask(2, "Подзадача", "Описание", Status.NEW, 3,
+                LocalDateTime.of(2022, 8, 6, 18, 0), 30);
+        String json = gson.toJson(task);
+        assertTrue(json.contains("\"finishTime\":\"2022-08-06T17:50:00\""), json);
+        String subTaskJson = gson.toJson(subTask);
+        assertTrue(subTaskJson.contains("\"finishTime\":\"2022-08-06T18:30:00\""), subTaskJson);
+        assertTrue(gson.toJson(new Task(4, "Без времени", "Описание", Status.NEW))
+                .contains("\"finishTime\":\"null\""));
+
+        assertEquals(task.getFinishTime(), gson.fromJson(json, Task.class).getFinishTime());
+        SubTask restored = gson.fromJson(subTaskJson, SubTask.class);
+        assertEquals(3, restored.getEpicId());
+        assertEquals(subTask.getFinishTime(), restored.getFinishTime());
+        RecurringTask series = new RecurringTask(5, "Серия", "Описание", Status.NEW,
+                LocalDateTime.of(2022, 8, 6, 9, 0), 15, 24 * 60, 3);
+        String seriesJson = gson.toJson(series, Task.class);
+        assertTrue(seriesJson.contains("\"finishTime\":\"2022-08-06T09:15:00\""), seriesJson);
+        assertTrue(gson.fromJson(seriesJson, Task.class) instanceof RecurringTask);
+    }
+}